@@ -1,10 +1,10 @@
 package banditlike;
 
+import javax.swing.JComponent;
 import javax.swing.JFrame;
 import asciiPanel.AsciiPanel;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
-import banditlike.screens.Screen;
 import banditlike.screens.StartScreen;
 
 /**
@@ -16,16 +16,21 @@ public class ApplicationMain extends JFrame implements KeyListener {
 	private static final long serialVersionUID = 1060623638149583738L;
 	
 	/**
-	 * The terminal to show the screen. As AsciiPanel is used, only ASCII characters will show.
+	 * The terminal to show the screen, either an AsciiPanel or a GlyphTerminal. Only ASCII characters will show.
 	 * This is the only GUI component in the program.
 	 */
-	private AsciiPanel terminal;
+	private JComponent panel;
 	
 	/**
-	 * The various screens to display.
-	 * Note the screens described here are not GUI components, but merely different "modes" of what to display.
+	 * The panel as seen by the screens.
 	 */
-	private Screen screen;
+	private Terminal terminal;
+	
+	/**
+	 * Runs the screens on the game thread and shows what they draw in the terminal.
+	 * Note the screens are not GUI components, but merely different "modes" of what to display.
+	 */
+	private GameLoop loop;
 	
 	/**
 	 * The game width and height.
@@ -35,38 +40,46 @@ public class ApplicationMain extends JFrame implements KeyListener {
 	
 	/**
 	 * Class constructor.
-	 * Creates a terminal, and adds a key listener.
+	 * Creates an AsciiPanel terminal, and adds a key listener.
 	 * Size is set to GAMEWIDTH and GAMEHEIGHT.
 	 */
 	public ApplicationMain(){
-		super("Banditlike");
-		terminal = new AsciiPanel(GAMEWIDTH, GAMEHEIGHT);
-		add(terminal);
-		pack();
-		screen = new StartScreen();
-		addKeyListener(this);
-		repaint();
+		this(false, false);
 	}
 	
 	/**
-	 * Updates the terminal.
+	 * Class constructor.
+	 * Creates a terminal, and adds a key listener.
+	 * Size is set to GAMEWIDTH and GAMEHEIGHT.
+	 * @param glyphTerminal Whether to draw with a GlyphTerminal instead of an AsciiPanel
+	 * @param parallel Whether creatures plan their actions in parallel; see World.setParallel
 	 */
-	@Override
-	public void repaint(){
-		terminal.clear();
-		screen.displayOutput(terminal);
-		super.repaint();
+	public ApplicationMain(boolean glyphTerminal, boolean parallel){
+		super("Banditlike");
+		if (glyphTerminal) {
+			GlyphTerminal glyphs = new GlyphTerminal(GAMEWIDTH, GAMEHEIGHT);
+			panel = glyphs;
+			terminal = glyphs;
+		} else {
+			AsciiPanel asciiPanel = new AsciiPanel(GAMEWIDTH, GAMEHEIGHT);
+			panel = asciiPanel;
+			terminal = new AsciiPanelTerminal(asciiPanel);
+		}
+		add(panel);
+		pack();
+		loop = new GameLoop(new StartScreen(parallel), terminal, panel);
+		addKeyListener(this);
+		loop.start();
 	}
 
 	/**
 	 * Responds whenever the key is pressed.
-	 * The current screen should respond to the key input and update accordingly.
+	 * The key is queued for the game thread, where the current screen responds to it and updates accordingly.
 	 * @param e The key pressed.
 	 */
 	@Override
 	public void keyPressed(KeyEvent e) {
-		screen = screen.respondToUserInput(e);
-		repaint();
+		loop.submit(e);
 	}
 
 	@Override
@@ -81,9 +94,20 @@ public class ApplicationMain extends JFrame implements KeyListener {
 	
 	/**
 	 * The main method.
+	 * Pass "--glyphs" to draw with a GlyphTerminal instead of an AsciiPanel,
+	 * and "--parallel" to have creatures plan their actions in parallel.
 	 */
 	public static void main(String[] args) {
-		ApplicationMain app = new ApplicationMain();
+		boolean glyphTerminal = false;
+		boolean parallel = false;
+		for (String arg : args){
+			if (arg.equals("--glyphs")) {
+				glyphTerminal = true;
+			} else if (arg.equals("--parallel")) {
+				parallel = true;
+			}
+		}
+		ApplicationMain app = new ApplicationMain(glyphTerminal, parallel);
 		app.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 		app.setVisible(true);
 	}
@@ -0,0 +1,85 @@
+package banditlike;
+
+import java.awt.Color;
+import asciiPanel.AsciiPanel;
+
+/**
+ * Lets screens draw into an AsciiPanel through the Terminal interface.
+ * Every call is passed straight on to the panel.
+ * @author Andrew Kim
+ */
+
+public class AsciiPanelTerminal implements Terminal {
+	
+	private AsciiPanel panel;
+	
+	/**
+	 * Class constructor.
+	 * @param panel The panel to draw into
+	 */
+	public AsciiPanelTerminal(AsciiPanel panel){
+		this.panel = panel;
+	}
+	
+	@Override
+	public int getWidthInCharacters() { return panel.getWidthInCharacters(); }
+	
+	@Override
+	public int getHeightInCharacters() { return panel.getHeightInCharacters(); }
+	
+	@Override
+	public void clear(){
+		panel.clear();
+	}
+	
+	@Override
+	public void clear(char character, int x, int y, int width, int height){
+		panel.clear(character, x, y, width, height);
+	}
+	
+	@Override
+	public void write(char character, int x, int y){
+		panel.write(character, x, y);
+	}
+	
+	@Override
+	public void write(char character, int x, int y, Color foreground){
+		panel.write(character, x, y, foreground);
+	}
+	
+	@Override
+	public void write(char character, int x, int y, Color foreground, Color background){
+		panel.write(character, x, y, foreground, background);
+	}
+	
+	@Override
+	public void write(String string, int x, int y){
+		panel.write(string, x, y);
+	}
+	
+	@Override
+	public void write(String string, int x, int y, Color foreground){
+		panel.write(string, x, y, foreground);
+	}
+	
+	@Override
+	public void write(String string, int x, int y, Color foreground, Color background){
+		panel.write(string, x, y, foreground, background);
+	}
+	
+	@Override
+	public void writeCenter(String string, int y){
+		panel.writeCenter(string, y);
+	}
+	
+	@Override
+	public void writeCenter(String string, int y, Color foreground){
+		panel.writeCenter(string, y, foreground);
+	}
+	
+	@Override
+	public void writeCenter(String string, int y, Color foreground, Color background){
+		panel.writeCenter(string, y, foreground, background);
+	}
+	
+}
@@ -1,5 +1,7 @@
 package banditlike;
 
+import java.util.Random;
+
 /**
  * The bat AI.
  * @author Andrew Kim
@@ -22,5 +24,13 @@ public class BatAi extends CreatureAi{
 		wander();
 		wander();
 	}
+	
+	/**
+	 * Plans to wander twice.
+	 */
+	@Override
+	public Intent plan(Random random){
+		return planWander(random).then(planWander(random));
+	}
 
 }
@@ -0,0 +1,210 @@
+package banditlike;
+
+/**
+ * Smooths a level of floor and wall tiles with a majority rule.
+ * A tile becomes floor when at least half of the in-bounds tiles of its 3x3 neighbourhood (itself included) are floor.
+ * The level is packed into rows of 64-bit words, one bit per tile, and the interior is computed 64 tiles at a time
+ * with bitwise adders. The border tiles, whose neighbourhoods are cut off by the edge of the map, are counted one by one.
+ * @author Andrew Kim
+ */
+
+public class CaveSmoother {
+
+	private static final byte FLOOR = (byte)Tile.FLOOR.ordinal();
+	private static final byte WALL = (byte)Tile.WALL.ordinal();
+
+	private int width;
+	private int height;
+	private int words;
+
+	/**
+	 * The current and next bit rows, and the per-row horizontal sums (low bit and carry) of three neighbours.
+	 */
+	private long[] from;
+	private long[] to;
+	private long[] sumLow;
+	private long[] sumHigh;
+
+	/**
+	 * Class constructor.
+	 * @param width Width of the levels to smooth
+	 * @param height Height of the levels to smooth
+	 */
+	public CaveSmoother(int width, int height){
+		this.width = width;
+		this.height = height;
+		this.words = (width + 63) >>> 6;
+		this.from = new long[words * height];
+		this.to = new long[words * height];
+		this.sumLow = new long[words * height];
+		this.sumHigh = new long[words * height];
+	}
+
+	/**
+	 * Smooths a level in place.
+	 * Every tile of the level must be FLOOR or WALL.
+	 * @param level The tile ordinals of the level, indexed by <code>y * width + x</code>
+	 * @param times The number of times to smooth the level
+	 */
+	public void smooth(byte[] level, int times){
+		pack(level);
+
+		for (int time = 0; time < times; time++){
+			smoothInterior();
+			smoothBorder();
+
+			long[] swap = from;
+			from = to;
+			to = swap;
+		}
+
+		unpack(level);
+	}
+
+	/**
+	 * Packs the tiles of a level into bit rows, one bit per floor tile.
+	 * @param level The tile ordinals of the level
+	 */
+	private void pack(byte[] level){
+		for (int i = 0; i < from.length; i++){
+			from[i] = 0;
+		}
+		for (int y = 0; y < height; y++){
+			for (int x = 0; x < width; x++){
+				if (level[y * width + x] == FLOOR){
+					from[y * words + (x >>> 6)] |= 1L << (x & 63);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the bit rows back into the tiles of a level.
+	 * @param level The tile ordinals of the level
+	 */
+	private void unpack(byte[] level){
+		for (int y = 0; y < height; y++){
+			for (int x = 0; x < width; x++){
+				boolean floor = (from[y * words + (x >>> 6)] & (1L << (x & 63))) != 0;
+				level[y * width + x] = floor ? FLOOR : WALL;
+			}
+		}
+	}
+
+	/**
+	 * Computes the next state of every tile that has a full 3x3 neighbourhood.
+	 * The nine neighbours are added with bit-sliced adders: first each row's three horizontal neighbours
+	 * into a two-bit sum, then the three row sums into a four-bit count. A tile becomes floor when the count is 5 or more.
+	 * The results for the first and last column are wrong here and are fixed by smoothBorder.
+	 */
+	private void smoothInterior(){
+		if (height < 3 || width < 3){
+			return;
+		}
+
+		for (int y = 0; y < height; y++){
+			int row = y * words;
+			for (int w = 0; w < words; w++){
+				long center = from[row + w];
+				long previous = w > 0 ? from[row + w - 1] : 0;
+				long next = w < words - 1 ? from[row + w + 1] : 0;
+
+				long left = (center << 1) | (previous >>> 63);
+				long right = (center >>> 1) | (next << 63);
+
+				sumLow[row + w] = left ^ center ^ right;
+				sumHigh[row + w] = (left & center) | (right & (left ^ center));
+			}
+		}
+
+		long lastMask = (width & 63) == 0 ? -1L : (1L << (width & 63)) - 1;
+
+		for (int y = 1; y < height - 1; y++){
+			int above = (y - 1) * words;
+			int row = y * words;
+			int below = (y + 1) * words;
+
+			for (int w = 0; w < words; w++){
+				long lowA = sumLow[above + w];
+				long lowB = sumLow[row + w];
+				long lowC = sumLow[below + w];
+				long highA = sumHigh[above + w];
+				long highB = sumHigh[row + w];
+				long highC = sumHigh[below + w];
+
+				// ones: count bit worth 1; the carries of the ones and the three high bits are worth 2 each
+				long ones = lowA ^ lowB ^ lowC;
+				long onesCarry = (lowA & lowB) | (lowC & (lowA ^ lowB));
+
+				long twos = highA ^ highB ^ highC;
+				long twosCarry = (highA & highB) | (highC & (highA ^ highB));
+
+				long twosTotal = twos ^ onesCarry;
+				long twosTotalCarry = twos & onesCarry;
+
+				// The count is ones + 2 * twosTotal + 4 * (twosCarry + twosTotalCarry), and both carries may be set, adding 8.
+				// count >= 5 when both carries are set, when one is set along with twosTotal, or when exactly one is set
+				// along with the ones bit.
+				long fours = twosCarry | twosTotalCarry;
+				long atLeastSix = (twosCarry & twosTotalCarry) | (fours & twosTotal);
+				long exactlyFour = ~twosTotal & (twosCarry ^ twosTotalCarry);
+
+				long result = atLeastSix | (exactlyFour & ones);
+				if (w == words - 1){
+					result &= lastMask;
+				}
+				to[row + w] = result;
+			}
+		}
+	}
+
+	/**
+	 * Computes the next state of the tiles on the edge of the level, counting only the in-bounds neighbours.
+	 */
+	private void smoothBorder(){
+		for (int x = 0; x < width; x++){
+			smoothTile(x, 0);
+			if (height > 1)
+				smoothTile(x, height - 1);
+		}
+		for (int y = 1; y < height - 1; y++){
+			smoothTile(0, y);
+			if (width > 1)
+				smoothTile(width - 1, y);
+		}
+	}
+
+	/**
+	 * Computes the next state of one tile by counting its neighbours.
+	 * @param x The x value of the tile
+	 * @param y The y value of the tile
+	 */
+	private void smoothTile(int x, int y){
+		int floors = 0;
+		int rocks = 0;
+
+		for (int oy = -1; oy <= 1; oy++){
+			for (int ox = -1; ox <= 1; ox++){
+				int nx = x + ox;
+				int ny = y + oy;
+				if (nx < 0 || nx >= width || ny < 0 || ny >= height){
+					continue;
+				}
+				if ((from[ny * words + (nx >>> 6)] & (1L << (nx & 63))) != 0){
+					floors++;
+				} else {
+					rocks++;
+				}
+			}
+		}
+
+		int word = y * words + (x >>> 6);
+		long bit = 1L << (x & 63);
+		if (floors >= rocks){
+			to[word] |= bit;
+		} else {
+			to[word] &= ~bit;
+		}
+	}
+
+}
@@ -0,0 +1,81 @@
+package banditlike;
+
+/**
+ * An indexed set of the cells of one level.
+ * Cells are stored densely with a reverse lookup table, so adding, removing,
+ * checking and picking a random cell all take constant time.
+ * @author Andrew Kim
+ */
+
+public class CellIndex {
+
+	private int[] cells;
+	private int[] positions;
+	private int size;
+
+	/**
+	 * @return The number of cells in the set
+	 */
+	public int size() { return size; }
+
+	/**
+	 * Class constructor.
+	 * @param capacity The number of cells of the level, usually <code>width * height</code>
+	 */
+	public CellIndex(int capacity){
+		this.cells = new int[capacity];
+		this.positions = new int[capacity];
+
+		for (int i = 0; i < capacity; i++){
+			positions[i] = -1;
+		}
+	}
+
+	/**
+	 * @param cell The cell index
+	 * @return Whether the cell is in the set
+	 */
+	public boolean contains(int cell){
+		return positions[cell] >= 0;
+	}
+
+	/**
+	 * Adds a cell to the set. Adding a cell twice has no effect.
+	 * @param cell The cell index
+	 */
+	public void add(int cell){
+		if (positions[cell] >= 0){
+			return;
+		}
+		cells[size] = cell;
+		positions[cell] = size;
+		size++;
+	}
+
+	/**
+	 * Removes a cell from the set by moving the last cell into its place.
+	 * @param cell The cell index
+	 */
+	public void remove(int cell){
+		int position = positions[cell];
+		if (position < 0){
+			return;
+		}
+
+		size--;
+		int last = cells[size];
+		cells[position] = last;
+		positions[last] = position;
+		positions[cell] = -1;
+	}
+
+	/**
+	 * Returns the cell at a position of the set. Positions change as cells are removed.
+	 * @param n The position, between 0 and size() - 1
+	 * @return The cell index
+	 */
+	public int get(int n){
+		return cells[n];
+	}
+
+}
@@ -1,6 +1,7 @@
 package banditlike;
 
 import java.awt.Color;
+import java.util.Random;
 
 /**
  * The creature class. It should list all properties and actions for a creature.
@@ -10,11 +11,12 @@ import java.awt.Color;
 public class Creature {
 	
 	private World world;
+	private int id;
 	
-	//Coordinates of Creature
-	public int x;
-	public int y;
-	public int z;
+	//Coordinates of Creature, only changed through moveTo so the world can track them
+	private int x;
+	private int y;
+	private int z;
 	
 	//Characteristics defined in Factory
 	private char glyph;
@@ -22,6 +24,10 @@ public class Creature {
 	private CreatureAi ai;
 	private int visionRadius;
 	private String name;
+	private Visibility visibility;
+	private int speed;
+	private Intent intent;
+	private long dormantSince;
 	
 	//Character stats
 	private int maxHp;
@@ -32,6 +38,78 @@ public class Creature {
 	private int maxFood;
 	private int food;
 	
+	/**
+	 * Returns the number the world gave the creature when it was added, unique within the world.
+	 * @return id
+	 */
+	public int id() { return id; }
+	
+	/**
+	 * Sets the id of the creature. Only the world should call this.
+	 * @param id
+	 */
+	public void setId(int id) { this.id = id; }
+	
+	/**
+	 * Returns the x value of the creature's location.
+	 * @return x
+	 */
+	public int x() { return x; }
+	
+	/**
+	 * Returns the y value of the creature's location.
+	 * @return y
+	 */
+	public int y() { return y; }
+	
+	/**
+	 * Returns the z value of the creature's location.
+	 * @return z
+	 */
+	public int z() { return z; }
+	
+	/**
+	 * Sets the creature's location, without any checks. Only the world should call this; use moveTo instead.
+	 * @param wx The x value
+	 * @param wy The y value
+	 * @param wz The z value
+	 */
+	public void setLocation(int wx, int wy, int wz){
+		x = wx;
+		y = wy;
+		z = wz;
+	}
+	
+	/**
+	 * Returns how often the creature acts; a creature of normal speed acts once a turn.
+	 * @return speed
+	 */
+	public int speed() { return speed; }
+	
+	/**
+	 * Sets how often the creature acts.
+	 * @param speed TurnScheduler.NORMAL_SPEED to act once a turn
+	 */
+	public void setSpeed(int speed) { this.speed = speed; }
+	
+	/**
+	 * Checks if the creature is outside the active zone and not being updated.
+	 * @return Whether the creature is dormant
+	 */
+	public boolean isDormant() { return dormantSince >= 0; }
+	
+	/**
+	 * Returns the turn of the world the creature was last updated before it became dormant.
+	 * @return dormantSince
+	 */
+	public long dormantSince() { return dormantSince; }
+	
+	/**
+	 * Sets the turn the creature became dormant. Only the world should call this.
+	 * @param turn The turn, or -1 when the creature wakes
+	 */
+	public void setDormantSince(long turn) { this.dormantSince = turn; }
+	
 	/**
 	 * Returns the glyph of the creature.
 	 * @return glyph
@@ -62,6 +140,13 @@ public class Creature {
 	 */
 	public void setVisionRadius(int radius) { this.visionRadius = radius; }
 	
+	/**
+	 * Returns the tiles the creature saw the last time its line of sight was computed.
+	 * Use inLineOfSight or LineOfSight to get an up to date answer.
+	 * @return visibility
+	 */
+	public Visibility visibility() { return visibility; }
+	
 	/**
 	 * Returns the name of the creature.
 	 * @return name
@@ -74,6 +159,13 @@ public class Creature {
 	 */
 	public Inventory inventory() { return inventory; }
 	
+	/**
+	 * Returns the random stream of a subsystem on the creature's level.
+	 * @param subsystem The subsystem drawing the numbers
+	 * @return The random stream
+	 */
+	public Random random(RandomStreams.Subsystem subsystem) { return world.random(subsystem, z); }
+	
 	/**
 	 * Returns the max HP of a given creature.
 	 * @return maxHp
@@ -134,6 +226,9 @@ public class Creature {
 		this.name = name;
 		this.visionRadius = 9;
 		this.inventory = new Inventory(20);
+		this.visibility = new Visibility();
+		this.speed = TurnScheduler.NORMAL_SPEED;
+		this.dormantSince = -1;
 	}
 	
 	//ACTIONS----------------------------------------------------------------------------------------
@@ -148,6 +243,16 @@ public class Creature {
 		world.dig(wx, wy, wz);
 	}
 	
+	/**
+	 * Moves the creature to the given coordinates, without any checks.
+	 * @param wx The new x value
+	 * @param wy The new y value
+	 * @param wz The new z value
+	 */
+	public void moveTo(int wx, int wy, int wz){
+		world.move(this, wx, wy, wz);
+	}
+	
 	/**
 	 * The amount to move by.
 	 * @param mx Change in x
@@ -193,7 +298,7 @@ public class Creature {
 	 */
 	public void attack(Creature other){
 		int amount = Math.max(0, attackValue() - other.defenseValue());
-		amount = (int)(Math.random() * amount) + 1;
+		amount = random(RandomStreams.Subsystem.COMBAT).nextInt(Math.max(amount, 1)) + 1;
 		other.modifyHp(-amount);
 		
 		doAction("attack the %s for %d damage", other.name, amount);
@@ -236,10 +341,65 @@ public class Creature {
 	}
 	
 	/**
-	 * Updates the creature.
+	 * Updates the creature, carrying out its planned intent if it has one.
 	 */
 	public void update(){
-		ai.onUpdate();
+		if (intent != null) {
+			Intent planned = intent;
+			intent = null;
+			ai.commit(planned);
+		} else {
+			ai.onUpdate();
+		}
+	}
+	
+	/**
+	 * Lets the creature plan its next update without changing the world.
+	 * If the AI has no plan, the creature is updated as usual when its turn comes.
+	 * @param random The creature's own random stream for the turn
+	 */
+	public void plan(Random random){
+		intent = ai.plan(random);
+	}
+	
+	/**
+	 * Approximates what the creature would have done in the turns it was dormant.
+	 * @param turns The number of turns missed
+	 */
+	public void catchUp(long turns){
+		ai.onWake(turns);
+	}
+	
+	/**
+	 * Skips the creature's updates for a number of turns.
+	 * @param turns The number of turns, or TurnScheduler.FOREVER to sleep until woken
+	 */
+	public void sleep(long turns){
+		world.scheduler(z).sleep(this, turns);
+	}
+	
+	/**
+	 * Makes a sleeping creature update again from the next turn.
+	 */
+	public void wake(){
+		world.scheduler(z).wake(this);
+	}
+	
+	/**
+	 * Stops updating the creature until it is next in the active zone, as if it had already been dormant for a while.
+	 * It catches up on those turns as well when it wakes.
+	 * @param missed The number of turns it has already missed
+	 */
+	public void makeDormant(long missed){
+		world.makeDormant(this, world.turns() - missed);
+	}
+	
+	/**
+	 * Checks if the creature will ask about its line of sight when it is next updated.
+	 * @return Whether the creature perceives
+	 */
+	public boolean perceives(){
+		return ai.perceives();
 	}
 	
 	/**
@@ -258,16 +418,22 @@ public class Creature {
 	}
 	
 	/**
-	 * Drops an item.
+	 * Drops an item. If there is no room nearby, the item stays in the inventory.
 	 * @param item Item to drop
 	 */
 	public void drop(Item item){
-		doAction("drop a " + item.name());
-		inventory.remove(item);
-		world.addAtEmptySpace(item, x, y, z);
-		
+		if (world.addAtEmptySpace(item, x, y, z)) {
+			doAction("drop a " + item.name());
+			inventory.remove(item);
+		} else {
+			notify("There is no room to drop the %s.", item.name());
+		}
 	}
 	
+	/**
+	 * Leaves a corpse on or near the creature's location.
+	 * If there is no room nearby, no corpse is left.
+	 */
 	public void leaveCorpse(){
 		Item corpse = new Item('%', color, name + " corpse");
 		corpse.modifyFoodValue(maxHp * 3);
@@ -282,7 +448,9 @@ public class Creature {
 	 * @param params Any necessary parameters for a formatted string
 	 */
 	public void notify(String message, Object ... params){
-		ai.onNotify(String.format(message, params));
+		if (ai.isListening()) {
+			ai.onNotify(String.format(message, params));
+		}
 	}
 	
 	/**
@@ -298,7 +466,7 @@ public class Creature {
 					continue;
 				}
 				Creature other = world.creature(x+ox,y+oy, z);
-				if(other == null){
+				if(other == null || !other.ai.isListening()){
 					continue;
 				} else if (other == this){
 					other.notify("You " + message + ".", params);
@@ -352,6 +520,18 @@ public class Creature {
 		return ai.canSee(wx, wy, wz);
 	}
 	
+	/**
+	 * Checks if a tile is within the creature's vision radius and not hidden behind walls.
+	 * Unlike canSee, this does not depend on the creature's AI.
+	 * @param wx The x value of tile
+	 * @param wy The y value of tile
+	 * @param wz The z value of tile
+	 * @return Whether the tile is in the creature's line of sight
+	 */
+	public boolean inLineOfSight(int wx, int wy, int wz){
+		return world.lineOfSight(z).canSee(this, wx, wy, wz);
+	}
+	
 	/**
 	 * Returns the tile within the given coordinates
 	 * @param wx The x value
@@ -1,5 +1,7 @@
 package banditlike;
 
+import java.util.Random;
+
 /**
  * The AI for a general creature.
  * Lists methods and decisions a creature will make.
@@ -30,9 +32,7 @@ public class CreatureAi {
 	 */
 	public void onEnter(int x, int y, int z, Tile tile){
 	    if (tile.isGround()){
-	         creature.x = x;
-	         creature.y = y;
-	         creature.z = z;
+	         creature.moveTo(x, y, z);
 	    } else {
 	         creature.doAction("bump into a wall");
 	    }
@@ -45,6 +45,79 @@ public class CreatureAi {
 		
 	}
 	
+	/**
+	 * Decides what the creature will do in its next update, for the parallel simulation.
+	 * Runs at the same time as the planning of other creatures, so it must only read the world and the creature,
+	 * and draw random numbers from the given stream only. The line of sight of perceiving creatures is up to date.
+	 * @param random The creature's own random stream for the turn.
+	 * @return The intent to carry out, or null to have onUpdate called instead.
+	 */
+	public Intent plan(Random random){
+		return null;
+	}
+	
+	/**
+	 * Carries out a planned intent, in place of onUpdate.
+	 * Every step is checked against the world as it is now, since other creatures may have acted since it was planned;
+	 * steps that are no longer possible are dropped.
+	 * @param intent The intent to carry out.
+	 */
+	public void commit(Intent intent){
+		for (Intent step = intent; step != null; step = step.next()){
+			switch (step.kind()){
+			case MOVE:
+				moveUnlessKin(step.dx(), step.dy());
+				break;
+			case ATTACK:
+				Creature target = step.target();
+				if (target.hp() > 0 && target.z() == creature.z()
+						&& Math.abs(target.x() - creature.x()) <= 1 && Math.abs(target.y() - creature.y()) <= 1) {
+					creature.attack(target);
+				}
+				break;
+			case SPAWN:
+				onSpawn(step.dx(), step.dy());
+				break;
+			}
+		}
+	}
+	
+	/**
+	 * Method for when a creature carries out an intent to spawn a child.
+	 * @param dx The x offset of the child.
+	 * @param dy The y offset of the child.
+	 */
+	protected void onSpawn(int dx, int dy){
+		
+	}
+	
+	/**
+	 * Method for when a dormant creature comes back into the active zone.
+	 * Should cheaply approximate the effect of the missed turns, instead of replaying them.
+	 * @param turns The number of turns the creature missed.
+	 */
+	public void onWake(long turns){
+		
+	}
+	
+	/**
+	 * Checks whether the AI asks canSee about its surroundings when it is updated or plans.
+	 * The world computes the line of sight of such creatures in one batch before any of them acts, so an AI that
+	 * uses the default canSee should override this to return true. Others are never cast for.
+	 * @return false by default.
+	 */
+	public boolean perceives(){
+		return false;
+	}
+	
+	/**
+	 * Checks whether the creature does anything with messages, so messages are not formatted for creatures that ignore them.
+	 * @return false by default.
+	 */
+	public boolean isListening(){
+		return false;
+	}
+	
 	/**
 	 * Method for what a creature should do whenever it receives a message.
 	 * @param message The message the creature receives.
@@ -55,36 +128,46 @@ public class CreatureAi {
 	
 	/**
 	 * Checks whether the creature can see a certain tile.
+	 * The tile must be within the vision radius and not hidden behind walls.
+	 * The answer comes from the level's line of sight service, which computes the creature's view once and reuses it.
 	 * @param wx The x value of the tile.
 	 * @param wy The y value of the tile.
 	 * @param wz The z value of the tile.
 	 * @return true if the creature can see the tile, false otherwise.
 	 */
 	public boolean canSee(int wx, int wy, int wz){
-		if(creature.z != wz){
-			return false;
-		}
-		if((creature.x - wx) * (creature.x - wx) + (creature.y - wy) * (creature.y - wy)
-				> creature.visionRadius() * creature.visionRadius()){
-			return false;
-		}
-		for(Point p : new Line(creature.x, creature.y, wx, wy)){
-			if(creature.tile(wx,wy,wz).isGround() || p.x == wx && p.y == wy){
-				continue;
-			}
-			return false;
-		}
-		return true;
+		return creature.inLineOfSight(wx, wy, wz);
 	}
 	
 	/**
 	 * Moves in a random direction.
 	 */
 	public void wander(){
-		int mx = (int)(Math.random() * 3) -1;
-		int my = (int)(Math.random() * 3) -1;
-		
-		Creature other = creature.creature(creature.x + mx, creature.y + my, creature.z);
+		Random random = creature.random(RandomStreams.Subsystem.AI);
+		int mx = random.nextInt(3) - 1;
+		int my = random.nextInt(3) - 1;
+		moveUnlessKin(mx, my);
+	}
+	
+	/**
+	 * Plans a move in a random direction.
+	 * @param random The random stream to draw from.
+	 * @return The intent to move.
+	 */
+	public Intent planWander(Random random){
+		int mx = random.nextInt(3) - 1;
+		int my = random.nextInt(3) - 1;
+		return Intent.move(mx, my);
+	}
+	
+	/**
+	 * Moves by the given amount, unless a creature of the same kind stands there.
+	 * This is what keeps two creatures of a kind from walking into each other.
+	 * @param mx Change in x.
+	 * @param my Change in y.
+	 */
+	protected void moveUnlessKin(int mx, int my){
+		Creature other = creature.creature(creature.x() + mx, creature.y() + my, creature.z());
 		
 		if(other != null && other.glyph() == creature.glyph()){
 			return;
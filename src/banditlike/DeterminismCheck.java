@@ -0,0 +1,119 @@
+package banditlike;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks that a seed always gives the same game, whatever the number of threads it runs on.
+ * Builds the world of the seed serially and in parallel and compares every tile. Then simulates the seeded world
+ * in the parallel mode on pools of one and of four threads, twice each, and compares a hash of every creature's id,
+ * location and HP after each run.
+ * Run it with <code>java banditlike.DeterminismCheck [seed] [turns]</code>; it exits with status 1 on a mismatch.
+ * @author Andrew Kim
+ */
+
+public class DeterminismCheck {
+
+	/**
+	 * The main method.
+	 * @param args The seed and the number of turns, both optional
+	 */
+	public static void main(String[] args) {
+		long seed = args.length > 0 ? Long.parseLong(args[0]) : 7;
+		int turns = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+		int[] parallelisms = { 1, 4, 1, 4 };
+		long expected = 0;
+		boolean matched = sameTiles(new WorldBuilder(200, 50, 3, seed).makeCaves().build(),
+				new WorldBuilder(200, 50, 3, seed).inParallel().makeCaves().build());
+		System.out.printf("seed %d, serial and parallel builds: %s%n", seed, matched ? "same tiles" : "different tiles");
+
+		for (int i = 0; i < parallelisms.length; i++){
+			long hash = simulate(seed, turns, parallelisms[i]);
+			System.out.printf("seed %d, %d turns, %d threads: %016x%n", seed, turns, parallelisms[i], hash);
+			if (i == 0) {
+				expected = hash;
+			} else if (hash != expected) {
+				matched = false;
+			}
+		}
+
+		System.out.println(matched ? "All runs match." : "Runs differ.");
+		if (!matched) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Builds a world from a seed and simulates it in the parallel mode.
+	 * The player takes a fixed random walk, so the run only depends on the seed.
+	 * @param seed The seed
+	 * @param turns The number of turns to simulate
+	 * @param parallelism The number of threads of the pool
+	 * @return The hash of the creatures at the end
+	 */
+	public static long simulate(long seed, int turns, int parallelism){
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			World world = new WorldBuilder(200, 50, 3, seed).makeCaves().build();
+			world.setPool(pool);
+			world.setParallel(true);
+
+			StuffFactory factory = new StuffFactory(world);
+			Creature player = factory.newPlayer(new ArrayList<String>(), new FieldOfView(world));
+			for (int z = 0; z < world.depth(); z++){
+				for (int i = 0; i < 8; i++){
+					factory.newFungus(z);
+				}
+				for (int i = 0; i < 20; i++){
+					factory.newBat(z);
+				}
+			}
+
+			Random walk = new Random(seed);
+			for (int turn = 0; turn < turns; turn++){
+				player.moveBy(walk.nextInt(3) - 1, walk.nextInt(3) - 1, 0);
+				world.update();
+			}
+			return hash(world.creatures());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Compares the tiles of two worlds of the same size.
+	 * @param a The first world
+	 * @param b The second world
+	 * @return Whether every tile is the same
+	 */
+	public static boolean sameTiles(World a, World b){
+		for (int z = 0; z < a.depth(); z++){
+			for (int y = 0; y < a.height(); y++){
+				for (int x = 0; x < a.width(); x++){
+					if (a.tile(x, y, z) != b.tile(x, y, z)) {
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Hashes the id, location and HP of every creature. The order of the list does not matter.
+	 * @param creatures The creatures
+	 * @return The hash
+	 */
+	public static long hash(List<Creature> creatures){
+		long hash = creatures.size();
+		for (Creature creature : creatures){
+			long key = ((long)creature.id() << 32) ^ ((long)creature.hp() << 48)
+					^ (creature.z() << 24) ^ (creature.y() << 12) ^ creature.x();
+			hash += RandomStreams.mix(key);
+		}
+		return hash;
+	}
+
+}
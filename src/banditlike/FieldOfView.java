@@ -1,5 +1,7 @@
 package banditlike;
 
+import java.util.BitSet;
+
 /**
  * The field of view object, currently only assocaited to the player and PlayScreen.
  * Updates the world accoridng to the field of view.
@@ -8,18 +10,51 @@ package banditlike;
 
 public class FieldOfView {
 	
+	/**
+	 * The ways a field of view can be computed.
+	 * RAYCAST casts a line to every tile within the radius, so tiles near the centre are checked many times.
+	 * SHADOWCAST uses symmetric recursive shadowcasting and never looks at tiles that are in shadow.
+	 */
+	public enum Algorithm {
+		RAYCAST,
+		SHADOWCAST
+	}
+	
 	private World world;
 	private int depth;
+	private Algorithm algorithm;
+	private ShadowCaster caster;
+	private ShadowCaster.Visitor revealer;
+	private LineCursor line;
+	
+	/**
+	 * The tiles visible at the given moment, indexed by <code>y * width + x</code>.
+	 * The bitset is reused between updates; only the box the last field of view covered is cleared.
+	 */
+	private BitSet visible;
+	private int width;
+	private int left;
+	private int top;
+	private int right;
+	private int bottom;
 	
 	/**
-	 * The tiles visible at the given moment.
+	 * What the last update was computed from, so an update with the same inputs can be skipped.
 	 */
-	private boolean[][] visible;
+	private int lastX;
+	private int lastY;
+	private int lastRadius;
+	private long lastTileVersion;
+	private Algorithm lastAlgorithm;
+	private long version;
 	
 	/**
-	 * All the tiles in the world, with the influence of the field of view.
+	 * The tiles that have ever been seen, one bitset per level indexed by <code>y * width + x</code>.
+	 * A seen tile is remembered as the world's current tile, unless it changed since it was last seen:
+	 * then the tile as it was last seen is kept in snapshots, keyed by <code>(z * height + y) * width + x</code>.
 	 */
-	private Tile[][][] tiles;
+	private BitSet[] seen;
+	private LongMap<Tile> snapshots;
 	
 	/**
 	 * Checks if the tile is visible to the creature.
@@ -31,10 +66,17 @@ public class FieldOfView {
 	 */
 	public boolean isVisible(int x, int y, int z){
 		return z == depth && x >= 0 && y >= 0
-				&& x < visible.length && y < visible[0].length
-				&& visible[x][y];
+				&& x < width && y < world.height()
+				&& visible.get(y * width + x);
 	}
 	
+	/**
+	 * Returns a counter that changes every time the visible tiles are recomputed.
+	 * Callers can cache anything derived from the field of view and rebuild it only when this changes.
+	 * @return The version of the field of view
+	 */
+	public long version() { return version; }
+	
 	/**
 	 * Returns the tile influenced by the field of view
 	 * @param x The x value
@@ -43,40 +85,117 @@ public class FieldOfView {
 	 * @return The tile
 	 */
 	public Tile tile(int x, int y, int z){
-		return tiles[x][y][z];
+		if (x < 0 || x >= width || y < 0 || y >= world.height() || z < 0 || z >= world.depth()){
+			return Tile.BOUNDS;
+		}
+		if (!seen[z].get(y * width + x)){
+			return Tile.UNKNOWN;
+		}
+		if (snapshots.size() > 0){
+			Tile snapshot = snapshots.get(key(x, y, z));
+			if (snapshot != null){
+				return snapshot;
+			}
+		}
+		return world.tile(x, y, z);
 	}
 	
+	/**
+	 * @return The algorithm used to compute the field of view
+	 */
+	public Algorithm algorithm() { return algorithm; }
+	
+	/**
+	 * Sets the algorithm used to compute the field of view. Takes effect on the next update.
+	 * @param algorithm The algorithm
+	 */
+	public void setAlgorithm(Algorithm algorithm) { this.algorithm = algorithm; }
+	
 	/**
 	 * Class constructor.
-	 * Sets the world, the visible array, and the tiles array for the class.
-	 * All tiles in the beginning are unknown.
+	 * Sets the world, the visible array, and the seen tiles for the class.
+	 * All tiles in the beginning are unknown. The field of view is computed by raycasting.
 	 * @param world
 	 */
 	public FieldOfView(World world){
+		this(world, Algorithm.RAYCAST);
+	}
+	
+	/**
+	 * Class constructor.
+	 * Sets the world, the visible array, and the seen tiles for the class.
+	 * All tiles in the beginning are unknown.
+	 * Listens to tile changes in the world, to keep remembering seen tiles as they were.
+	 * @param world
+	 * @param algorithm The algorithm used to compute the field of view
+	 */
+	public FieldOfView(World world, Algorithm algorithm){
 		this.world = world;
-		this.visible = new boolean[world.width()][world.height()];
-		this.tiles = new Tile[world.width()][world.height()][world.depth()];
-		
-		for(int x = 0; x < world.width(); x++){
-			for(int y = 0; y < world.height(); y++){
-				for(int z = 0; z < world.depth(); z++){
-					tiles[x][y][z] = Tile.UNKNOWN;
+		this.algorithm = algorithm;
+		this.width = world.width();
+		this.visible = new BitSet(world.width() * world.height());
+		this.lastRadius = -1;
+		this.seen = new BitSet[world.depth()];
+		for (int z = 0; z < world.depth(); z++){
+			seen[z] = new BitSet();
+		}
+		this.snapshots = new LongMap<Tile>(16);
+		this.caster = new ShadowCaster();
+		this.line = new LineCursor();
+		this.revealer = new ShadowCaster.Visitor(){
+			@Override
+			public void reveal(int x, int y){
+				visible.set(y * width + x);
+				see(x, y);
+			}
+		};
+		world.addTileListener(new World.TileListener(){
+			@Override
+			public void tileChanged(int x, int y, int z, Tile previous){
+				if (seen[z].get(y * width + x) && snapshots.get(key(x, y, z)) == null){
+					snapshots.put(key(x, y, z), previous);
 				}
 			}
-		}
+		});
 	}
 	
 	/**
 	 * Updates the field of view.
 	 * All tiles within the field of view become visible, and never become invisible again.
+	 * Nothing is recomputed if the position, radius and algorithm are the same as last time
+	 * and no tile of the level has changed since.
 	 * @param wx The x value of the creature
 	 * @param wy The y value of the creature
 	 * @param wz The z value of the creature
 	 * @param r The radius of the field of view
 	 */
 	public void update(int wx, int wy, int wz, int r){
+		long tileVersion = world.tileVersion(wz);
+		if (wx == lastX && wy == lastY && wz == depth && r == lastRadius
+				&& tileVersion == lastTileVersion && algorithm == lastAlgorithm){
+			return;
+		}
+		
+		for (int y = top; y <= bottom; y++){
+			visible.clear(y * width + left, y * width + right + 1);
+		}
+		
 		depth = wz;
-		visible = new boolean[world.width()][world.height()];
+		lastX = wx;
+		lastY = wy;
+		lastRadius = r;
+		lastTileVersion = tileVersion;
+		lastAlgorithm = algorithm;
+		left = Math.max(0, wx - r);
+		top = Math.max(0, wy - r);
+		right = Math.min(width - 1, wx + r);
+		bottom = Math.min(world.height() - 1, wy + r);
+		version++;
+		
+		if (algorithm == Algorithm.SHADOWCAST){
+			caster.cast(world, wx, wy, wz, r, revealer);
+			return;
+		}
 		
 		for (int x = -r; x < r; x++){
             for (int y = -r; y < r; y++){
@@ -89,10 +208,10 @@ public class FieldOfView {
                 	continue;
                 }
          
-                for (Point p : new Line(wx, wy, wx + x, wy + y)){
-                    Tile tile = world.tile(p.x, p.y, wz);
-                    visible[p.x][p.y] = true;
-                    tiles[p.x][p.y][wz] = tile;
+                line.reset(wx, wy, wx + x, wy + y);
+                while (line.next()){
+                    Tile tile = world.tile(line.x(), line.y(), wz);
+                    see(line.x(), line.y());
              
                     if (!tile.isGround()){
                     	break;
@@ -102,4 +221,27 @@ public class FieldOfView {
         }
 	}
 
+	/**
+	 * Marks a tile of the current level as visible and seen, forgetting any older snapshot of it.
+	 * @param x The x value
+	 * @param y The y value
+	 */
+	private void see(int x, int y){
+		visible.set(y * width + x);
+		seen[depth].set(y * width + x);
+		if (snapshots.size() > 0){
+			snapshots.remove(key(x, y, depth));
+		}
+	}
+	
+	/**
+	 * @param x The x value
+	 * @param y The y value
+	 * @param z The z value
+	 * @return The key of the tile in snapshots
+	 */
+	private long key(int x, int y, int z){
+		return ((long)z * world.height() + y) * width + x;
+	}
+
 }
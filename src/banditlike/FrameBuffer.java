@@ -0,0 +1,274 @@
+package banditlike;
+
+import java.awt.Color;
+import asciiPanel.AsciiPanel;
+
+/**
+ * A terminal that only exists in memory, for drawing screens without a window.
+ * Each cell is kept as a character and two RGB values in flat arrays indexed by <code>y * width + x</code>,
+ * so frames are cheap to draw, copy and compare. Writing follows the same rules as AsciiPanel,
+ * including which writes are rejected, so a screen behaves the same on both.
+ * @author Andrew Kim
+ */
+
+public class FrameBuffer implements Terminal {
+	
+	private int width;
+	private int height;
+	private char[] glyphs;
+	private int[] foregrounds;
+	private int[] backgrounds;
+	private int defaultForeground;
+	private int defaultBackground;
+	
+	/**
+	 * Class constructor.
+	 * The buffer starts out cleared, with the same default colors as AsciiPanel.
+	 * @param width The width in characters
+	 * @param height The height in characters
+	 */
+	public FrameBuffer(int width, int height){
+		if (width < 1)
+			throw new IllegalArgumentException("width " + width + " must be greater than 0.");
+		if (height < 1)
+			throw new IllegalArgumentException("height " + height + " must be greater than 0.");
+		
+		this.width = width;
+		this.height = height;
+		this.glyphs = new char[width * height];
+		this.foregrounds = new int[width * height];
+		this.backgrounds = new int[width * height];
+		this.defaultForeground = AsciiPanel.white.getRGB();
+		this.defaultBackground = AsciiPanel.black.getRGB();
+		clear();
+	}
+	
+	@Override
+	public int getWidthInCharacters() { return width; }
+	
+	@Override
+	public int getHeightInCharacters() { return height; }
+	
+	/**
+	 * @param x The column
+	 * @param y The row
+	 * @return The character in the cell
+	 */
+	public char glyph(int x, int y) { return glyphs[y * width + x]; }
+	
+	/**
+	 * @param x The column
+	 * @param y The row
+	 * @return The RGB value of the character's color
+	 */
+	public int foreground(int x, int y) { return foregrounds[y * width + x]; }
+	
+	/**
+	 * @param x The column
+	 * @param y The row
+	 * @return The RGB value of the color behind the character
+	 */
+	public int background(int x, int y) { return backgrounds[y * width + x]; }
+	
+	/**
+	 * Checks whether a cell looks the same in this buffer and another of the same size.
+	 * @param other The other buffer
+	 * @param x The column
+	 * @param y The row
+	 * @return Whether the character and both colors match
+	 */
+	public boolean sameCell(FrameBuffer other, int x, int y){
+		int i = y * width + x;
+		return glyphs[i] == other.glyphs[i]
+				&& foregrounds[i] == other.foregrounds[i]
+				&& backgrounds[i] == other.backgrounds[i];
+	}
+	
+	/**
+	 * Counts the cells that look different in this buffer and another of the same size.
+	 * @param other The other buffer
+	 * @return The number of differing cells
+	 */
+	public int differences(FrameBuffer other){
+		checkSize(other);
+		int count = 0;
+		for (int i = 0; i < glyphs.length; i++){
+			if (glyphs[i] != other.glyphs[i]
+					|| foregrounds[i] != other.foregrounds[i]
+					|| backgrounds[i] != other.backgrounds[i]){
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Makes this buffer look exactly like another of the same size.
+	 * @param other The buffer to copy
+	 */
+	public void copyFrom(FrameBuffer other){
+		checkSize(other);
+		System.arraycopy(other.glyphs, 0, glyphs, 0, glyphs.length);
+		System.arraycopy(other.foregrounds, 0, foregrounds, 0, foregrounds.length);
+		System.arraycopy(other.backgrounds, 0, backgrounds, 0, backgrounds.length);
+	}
+	
+	/**
+	 * Makes one cell of this buffer look like the same cell of another buffer of the same size.
+	 * @param other The buffer to copy from
+	 * @param x The column
+	 * @param y The row
+	 */
+	public void copyCell(FrameBuffer other, int x, int y){
+		int i = y * width + x;
+		put(other.glyphs[i], i, other.foregrounds[i], other.backgrounds[i]);
+	}
+	
+	@Override
+	public void clear(){
+		for (int i = 0; i < glyphs.length; i++){
+			glyphs[i] = ' ';
+			foregrounds[i] = defaultForeground;
+			backgrounds[i] = defaultBackground;
+		}
+	}
+	
+	@Override
+	public void clear(char character, int x, int y, int width, int height){
+		checkCharacter(character);
+		checkCell(x, y);
+		if (width < 1)
+			throw new IllegalArgumentException("width " + width + " must be greater than 0.");
+		if (height < 1)
+			throw new IllegalArgumentException("height " + height + " must be greater than 0.");
+		if (x + width > this.width)
+			throw new IllegalArgumentException("x + width " + (x + width) + " must be less than " + (this.width + 1) + ".");
+		if (y + height > this.height)
+			throw new IllegalArgumentException("y + height " + (y + height) + " must be less than " + (this.height + 1) + ".");
+		
+		for (int yo = y; yo < y + height; yo++){
+			for (int i = yo * this.width + x; i < yo * this.width + x + width; i++){
+				glyphs[i] = character;
+				foregrounds[i] = defaultForeground;
+				backgrounds[i] = defaultBackground;
+			}
+		}
+	}
+	
+	@Override
+	public void write(char character, int x, int y){
+		write(character, x, y, null, null);
+	}
+	
+	@Override
+	public void write(char character, int x, int y, Color foreground){
+		write(character, x, y, foreground, null);
+	}
+	
+	@Override
+	public void write(char character, int x, int y, Color foreground, Color background){
+		checkCharacter(character);
+		checkCell(x, y);
+		put(character, y * width + x, rgb(foreground, defaultForeground), rgb(background, defaultBackground));
+	}
+	
+	@Override
+	public void write(String string, int x, int y){
+		write(string, x, y, null, null);
+	}
+	
+	@Override
+	public void write(String string, int x, int y, Color foreground){
+		write(string, x, y, foreground, null);
+	}
+	
+	@Override
+	public void write(String string, int x, int y, Color foreground, Color background){
+		if (string == null)
+			throw new NullPointerException("string must not be null");
+		if (x + string.length() >= width)
+			throw new IllegalArgumentException("x + string.length() " + (x + string.length()) + " must be less than " + width + ".");
+		checkCell(x, y);
+		
+		int fg = rgb(foreground, defaultForeground);
+		int bg = rgb(background, defaultBackground);
+		for (int i = 0; i < string.length(); i++){
+			checkCharacter(string.charAt(i));
+			put(string.charAt(i), y * width + x + i, fg, bg);
+		}
+	}
+	
+	@Override
+	public void writeCenter(String string, int y){
+		writeCenter(string, y, null, null);
+	}
+	
+	@Override
+	public void writeCenter(String string, int y, Color foreground){
+		writeCenter(string, y, foreground, null);
+	}
+	
+	@Override
+	public void writeCenter(String string, int y, Color foreground, Color background){
+		if (string == null)
+			throw new NullPointerException("string must not be null.");
+		if (string.length() >= width)
+			throw new IllegalArgumentException("string.length() " + string.length() + " must be less than " + width + ".");
+		
+		write(string, (width - string.length()) / 2, y, foreground, background);
+	}
+	
+	/**
+	 * Sets one cell.
+	 * @param character The character
+	 * @param index The index of the cell
+	 * @param foreground The RGB value of the character's color
+	 * @param background The RGB value of the color behind the character
+	 */
+	private void put(char character, int index, int foreground, int background){
+		glyphs[index] = character;
+		foregrounds[index] = foreground;
+		backgrounds[index] = background;
+	}
+	
+	/**
+	 * @param color A color, or null
+	 * @param fallback The RGB value to use for null
+	 * @return The RGB value of the color
+	 */
+	private static int rgb(Color color, int fallback){
+		return color == null ? fallback : color.getRGB();
+	}
+	
+	/**
+	 * Rejects characters AsciiPanel has no glyph for.
+	 * @param character The character
+	 */
+	private static void checkCharacter(char character){
+		if (character >= 256)
+			throw new IllegalArgumentException("character " + character + " must be within range [0,256].");
+	}
+	
+	/**
+	 * Rejects cells outside the buffer.
+	 * @param x The column
+	 * @param y The row
+	 */
+	private void checkCell(int x, int y){
+		if (x < 0 || x >= width)
+			throw new IllegalArgumentException("x " + x + " must be within range [0," + width + ")");
+		if (y < 0 || y >= height)
+			throw new IllegalArgumentException("y " + y + " must be within range [0," + height + ")");
+	}
+	
+	/**
+	 * Rejects buffers of another size.
+	 * @param other The other buffer
+	 */
+	private void checkSize(FrameBuffer other){
+		if (other.width != width || other.height != height)
+			throw new IllegalArgumentException("buffer sizes " + width + "x" + height
+					+ " and " + other.width + "x" + other.height + " must match.");
+	}
+	
+}
@@ -1,5 +1,7 @@
 package banditlike;
 
+import java.util.Random;
+
 /**
  * The fungus AI.
  * @author Andrew Kim
@@ -9,6 +11,12 @@ public class FungusAi extends CreatureAi {
 	private StuffFactory factory;
 	private int spreadCount;
 	
+	/**
+	 * The chance of spreading on each turn, and whether the fungus was woken to spread.
+	 */
+	private static final double SPREAD_CHANCE = 0.01;
+	private boolean spreading;
+	
 	/**
 	 * The class constructor. 
 	 * @param creature The given fungus on the world.
@@ -20,32 +28,108 @@ public class FungusAi extends CreatureAi {
 	}
 	
 	/**
-	 * Spawns a child occasionally every time it is updated.
+	 * Spawns a child occasionally, with a chance of SPREAD_CHANCE each turn.
+	 * Instead of rolling every turn, the fungus draws how many turns it takes until a roll succeeds
+	 * and sleeps until then. Once it has spread 5 times it sleeps for good.
 	 */
 	public void onUpdate(){
-		if(spreadCount < 5 && Math.random() < 0.01){
-			spread();
-			creature.doAction("spawn a child");
+		if(spreading){
+			Random random = creature.random(RandomStreams.Subsystem.AI);
+			int dx = random.nextInt(11) - 5;
+			int dy = random.nextInt(11) - 5;
+			spread(dx, dy);
+		}
+		sleepUntilSpread();
+	}
+	
+	/**
+	 * Plans where to spawn the child, if the fungus was woken to spread.
+	 */
+	@Override
+	public Intent plan(Random random){
+		if(!spreading){
+			return null;
+		}
+		return Intent.spawn(random.nextInt(11) - 5, random.nextInt(11) - 5);
+	}
+	
+	/**
+	 * Spawns the planned child, then sleeps until the next spread.
+	 */
+	@Override
+	public void commit(Intent intent){
+		super.commit(intent);
+		sleepUntilSpread();
+	}
+	
+	@Override
+	protected void onSpawn(int dx, int dy){
+		spread(dx, dy);
+	}
+	
+	/**
+	 * Catches up on the spreads the fungus would have made while dormant, drawing the turns between them
+	 * as usual, then starts waiting for the next one afresh. As in onUpdate, a spread that finds no room
+	 * still uses up its roll. Each child is left dormant as if it had been spawned in its turn, so it catches up
+	 * on the rest of the turns when the world next wakes it.
+	 */
+	@Override
+	public void onWake(long turns){
+		Random random = creature.random(RandomStreams.Subsystem.AI);
+		long elapsed = turnsUntilSpread();
+		while(spreadCount < 5 && elapsed <= turns){
+			Creature child = spread(random.nextInt(11) - 5, random.nextInt(11) - 5);
+			if(child != null){
+				child.makeDormant(turns - elapsed);
+			}
+			elapsed += turnsUntilSpread();
 		}
+		spreading = false;
 	}
 	
 	/**
-	 * Creates another fungus entity within a 5x5 square of the original fungus.
+	 * Sleeps until the next successful spread roll, or for good once the fungus has spread 5 times.
+	 */
+	private void sleepUntilSpread(){
+		if(spreadCount < 5){
+			spreading = true;
+			creature.sleep(turnsUntilSpread());
+		} else {
+			spreading = false;
+			creature.sleep(TurnScheduler.FOREVER);
+		}
+	}
+	
+	/**
+	 * Draws the number of turns until the next successful spread roll, from a geometric distribution.
+	 * @return The number of turns, at least 1
+	 */
+	private long turnsUntilSpread(){
+		double roll = 1 - creature.random(RandomStreams.Subsystem.AI).nextDouble();
+		return 1 + (long)Math.floor(Math.log(roll) / Math.log(1 - SPREAD_CHANCE));
+	}
+	
+	/**
+	 * Creates another fungus entity at the given offset, within an 11x11 square of the original fungus.
 	 * Increases the spread count of the original fungus by 1.
+	 * @param dx The x offset of the child
+	 * @param dy The y offset of the child
+	 * @return The child, or null if there was no room for it
 	 */
-	private void spread(){
-		int x = creature.x + (int)(Math.random() * 11) - 5;
-		int y = creature.y + (int)(Math.random() * 11) - 5;
+	private Creature spread(int dx, int dy){
+		int x = creature.x() + dx;
+		int y = creature.y() + dy;
+		Creature child = null;
 		
-		if(!creature.canEnter(x,y,creature.z)){
-			return;
+		if(creature.canEnter(x,y,creature.z())){
+			child = factory.newFungus(creature.z());
+			if (child != null) {
+				child.moveTo(x, y, creature.z());
+				spreadCount++;
+			}
 		}
-		
-		Creature child = factory.newFungus(creature.z);
-		child.x = x;
-		child.y = y;
-		child.z = creature.z;
-		spreadCount++;
+		creature.doAction("spawn a child");
+		return child;
 	}
 
 }
@@ -0,0 +1,178 @@
+package banditlike;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import javax.swing.SwingUtilities;
+import banditlike.screens.Screen;
+
+/**
+ * Runs the game on its own thread, away from the AWT event thread.
+ * Key presses are queued by the event thread and handled in order by the game thread. Every key waiting in the queue
+ * is handled before the next frame is drawn, so keys that arrive during a slow turn cost one frame instead of one each.
+ * Frames are drawn into a FrameBuffer and handed to the event thread, which copies the cells that changed to the terminal.
+ * If a new frame is ready before the event thread got to the last one, only the newest is shown.
+ * @author Andrew Kim
+ */
+
+public class GameLoop implements Runnable {
+	
+	private BlockingQueue<KeyEvent> input;
+	private Screen screen;
+	private FrameBuffer frame;
+	
+	/**
+	 * The terminal on screen, what it shows, the component to repaint, and the colors written so far by RGB value.
+	 * Only used on the event thread.
+	 */
+	private Terminal target;
+	private FrameBuffer presented;
+	private Component component;
+	private LongMap<Color> colors;
+	
+	/**
+	 * The newest finished frame, and whether the event thread has been asked to show it. Guarded by the lock.
+	 */
+	private final Object lock;
+	private FrameBuffer pending;
+	private boolean scheduled;
+	private Runnable present;
+	
+	/**
+	 * Class constructor.
+	 * @param screen The first screen to show
+	 * @param target The terminal to show the frames on
+	 * @param component The component to repaint after each frame is shown
+	 */
+	public GameLoop(Screen screen, Terminal target, Component component){
+		int width = target.getWidthInCharacters();
+		int height = target.getHeightInCharacters();
+		
+		this.input = new LinkedBlockingQueue<KeyEvent>();
+		this.screen = screen;
+		this.frame = new FrameBuffer(width, height);
+		this.target = target;
+		this.presented = new FrameBuffer(width, height);
+		this.component = component;
+		this.colors = new LongMap<Color>(64);
+		this.lock = new Object();
+		this.pending = new FrameBuffer(width, height);
+		this.present = new Runnable(){
+			@Override
+			public void run(){
+				present();
+			}
+		};
+		target.clear();
+	}
+	
+	/**
+	 * Starts the game thread.
+	 * @return The thread
+	 */
+	public Thread start(){
+		Thread thread = new Thread(this, "game loop");
+		thread.setDaemon(true);
+		thread.start();
+		return thread;
+	}
+	
+	/**
+	 * Queues a key press for the game thread. Safe to call from any thread.
+	 * @param key The key pressed
+	 */
+	public void submit(KeyEvent key){
+		input.add(key);
+	}
+	
+	/**
+	 * Draws the first frame, then waits for keys until the thread is interrupted.
+	 * An exception thrown by a screen ends the thread and is left to its uncaught exception handler,
+	 * since the world may have been left half way through a turn.
+	 */
+	@Override
+	public void run(){
+		List<KeyEvent> keys = new ArrayList<KeyEvent>();
+		render();
+		
+		while (true){
+			try {
+				keys.add(input.take());
+			} catch (InterruptedException e) {
+				return;
+			}
+			input.drainTo(keys);
+			
+			for (KeyEvent key : keys){
+				respond(key);
+			}
+			keys.clear();
+			render();
+		}
+	}
+	
+	/**
+	 * Lets the current screen respond to a key, clearing the frame if the screen changes.
+	 * @param key The key pressed
+	 */
+	private void respond(KeyEvent key){
+		Screen next = screen.respondToUserInput(key);
+		if (next != screen) {
+			frame.clear();
+			screen = next;
+		}
+	}
+	
+	/**
+	 * Draws the current screen and hands the frame to the event thread.
+	 */
+	private void render(){
+		screen.displayOutput(frame);
+		
+		synchronized (lock){
+			pending.copyFrom(frame);
+			if (!scheduled) {
+				scheduled = true;
+				SwingUtilities.invokeLater(present);
+			}
+		}
+	}
+	
+	/**
+	 * Copies the cells of the newest frame that differ from what is shown to the terminal. Runs on the event thread.
+	 */
+	private void present(){
+		synchronized (lock){
+			scheduled = false;
+			for (int y = 0; y < pending.getHeightInCharacters(); y++){
+				for (int x = 0; x < pending.getWidthInCharacters(); x++){
+					if (!pending.sameCell(presented, x, y)) {
+						target.write(pending.glyph(x, y), x, y,
+								color(pending.foreground(x, y)), color(pending.background(x, y)));
+					}
+				}
+			}
+			presented.copyFrom(pending);
+		}
+		component.repaint();
+	}
+	
+	/**
+	 * Returns the color of an RGB value, making it the first time it is asked for. Runs on the event thread.
+	 * @param rgb The RGB value
+	 * @return The color
+	 */
+	private Color color(int rgb){
+		Color color = colors.get(rgb);
+		if (color == null) {
+			color = new Color(rgb);
+			colors.put(rgb, color);
+		}
+		return color;
+	}
+	
+}
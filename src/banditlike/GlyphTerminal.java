@@ -0,0 +1,254 @@
+package banditlike;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+import javax.swing.JPanel;
+import asciiPanel.AsciiPanel;
+
+/**
+ * A terminal component that draws the code page 437 glyphs itself, as an alternative to AsciiPanel.
+ * The glyph sheet is read once into on/off masks. For each pair of colors in use, the glyphs are tinted into
+ * pixel arrays the first time they are needed, so drawing a cell is a copy of rows of pixels into a backing image.
+ * Only cells that changed since the last paint are copied; the backing image is then drawn in one call.
+ * Writes are checked and stored by a FrameBuffer. Like any Swing component, it must only be used on the event thread.
+ * @author Andrew Kim
+ */
+
+public class GlyphTerminal extends JPanel implements Terminal {
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * The size of one glyph in pixels, the same as AsciiPanel's.
+	 */
+	public static final int CHAR_WIDTH = 9;
+	public static final int CHAR_HEIGHT = 16;
+	
+	/**
+	 * The glyph sheet keeps 32 glyphs per row, after a margin of 8 pixels.
+	 */
+	private static final int SHEET_COLUMNS = 32;
+	private static final int SHEET_MARGIN = 8;
+	
+	private int width;
+	private int height;
+	
+	/**
+	 * What the screens wrote, and what the backing image shows.
+	 */
+	private FrameBuffer cells;
+	private FrameBuffer drawn;
+	
+	/**
+	 * For each glyph, whether each of its pixels is lit, row by row.
+	 */
+	private boolean[][] masks;
+	
+	/**
+	 * Tinted glyphs for each pair of colors, keyed by <code>foreground &lt;&lt; 32 | background</code>.
+	 * A glyph is only tinted once it is drawn in those colors.
+	 */
+	private LongMap<int[][]> atlases;
+	private long lastKey;
+	private int[][] lastAtlas;
+	
+	private BufferedImage image;
+	private int[] pixels;
+	private boolean painted;
+	
+	/**
+	 * Class constructor.
+	 * @param width The width in characters
+	 * @param height The height in characters
+	 */
+	public GlyphTerminal(int width, int height){
+		this.width = width;
+		this.height = height;
+		this.cells = new FrameBuffer(width, height);
+		this.drawn = new FrameBuffer(width, height);
+		this.masks = loadMasks();
+		this.atlases = new LongMap<int[][]>(16);
+		this.image = new BufferedImage(width * CHAR_WIDTH, height * CHAR_HEIGHT, BufferedImage.TYPE_INT_RGB);
+		this.pixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+		
+		Dimension size = new Dimension(width * CHAR_WIDTH, height * CHAR_HEIGHT);
+		setPreferredSize(size);
+		setMinimumSize(size);
+		setMaximumSize(size);
+		setOpaque(true);
+	}
+	
+	/**
+	 * Reads the glyph sheet that comes with AsciiPanel.
+	 * @return The mask of each of the 256 glyphs
+	 */
+	private static boolean[][] loadMasks(){
+		BufferedImage sheet;
+		try {
+			sheet = ImageIO.read(AsciiPanel.class.getResource("cp437.png"));
+		} catch (IOException e) {
+			throw new IllegalStateException("The glyph sheet could not be read.", e);
+		}
+		
+		boolean[][] masks = new boolean[256][CHAR_WIDTH * CHAR_HEIGHT];
+		for (int i = 0; i < 256; i++){
+			int sx = (i % SHEET_COLUMNS) * CHAR_WIDTH + SHEET_MARGIN;
+			int sy = (i / SHEET_COLUMNS) * CHAR_HEIGHT + SHEET_MARGIN;
+			for (int y = 0; y < CHAR_HEIGHT; y++){
+				for (int x = 0; x < CHAR_WIDTH; x++){
+					masks[i][y * CHAR_WIDTH + x] = (sheet.getRGB(sx + x, sy + y) & 0xffffff) != 0;
+				}
+			}
+		}
+		return masks;
+	}
+	
+	@Override
+	public int getWidthInCharacters() { return width; }
+	
+	@Override
+	public int getHeightInCharacters() { return height; }
+	
+	@Override
+	public void clear(){
+		cells.clear();
+	}
+	
+	@Override
+	public void clear(char character, int x, int y, int width, int height){
+		cells.clear(character, x, y, width, height);
+	}
+	
+	@Override
+	public void write(char character, int x, int y){
+		cells.write(character, x, y);
+	}
+	
+	@Override
+	public void write(char character, int x, int y, Color foreground){
+		cells.write(character, x, y, foreground);
+	}
+	
+	@Override
+	public void write(char character, int x, int y, Color foreground, Color background){
+		cells.write(character, x, y, foreground, background);
+	}
+	
+	@Override
+	public void write(String string, int x, int y){
+		cells.write(string, x, y);
+	}
+	
+	@Override
+	public void write(String string, int x, int y, Color foreground){
+		cells.write(string, x, y, foreground);
+	}
+	
+	@Override
+	public void write(String string, int x, int y, Color foreground, Color background){
+		cells.write(string, x, y, foreground, background);
+	}
+	
+	@Override
+	public void writeCenter(String string, int y){
+		cells.writeCenter(string, y);
+	}
+	
+	@Override
+	public void writeCenter(String string, int y, Color foreground){
+		cells.writeCenter(string, y, foreground);
+	}
+	
+	@Override
+	public void writeCenter(String string, int y, Color foreground, Color background){
+		cells.writeCenter(string, y, foreground, background);
+	}
+	
+	/**
+	 * Brings the backing image up to date, copying only the cells that changed since it was last updated.
+	 * @return The number of cells copied
+	 */
+	public int flush(){
+		int count = 0;
+		for (int y = 0; y < height; y++){
+			for (int x = 0; x < width; x++){
+				if (painted && cells.sameCell(drawn, x, y)) {
+					continue;
+				}
+				blit(x, y, cells.glyph(x, y), cells.foreground(x, y), cells.background(x, y));
+				drawn.copyCell(cells, x, y);
+				count++;
+			}
+		}
+		painted = true;
+		return count;
+	}
+	
+	/**
+	 * Draws the terminal, after bringing the backing image up to date.
+	 * @param g The graphics to draw with
+	 */
+	@Override
+	protected void paintComponent(Graphics g){
+		flush();
+		g.drawImage(image, 0, 0, null);
+	}
+	
+	/**
+	 * Copies a tinted glyph into a cell of the backing image.
+	 * @param x The column
+	 * @param y The row
+	 * @param glyph The character
+	 * @param foreground The RGB value of the character's color
+	 * @param background The RGB value of the color behind the character
+	 */
+	private void blit(int x, int y, char glyph, int foreground, int background){
+		int[] tinted = tinted(glyph, foreground, background);
+		int stride = width * CHAR_WIDTH;
+		int offset = y * CHAR_HEIGHT * stride + x * CHAR_WIDTH;
+		int i = 0;
+		for (int row = 0; row < CHAR_HEIGHT; row++){
+			for (int column = 0; column < CHAR_WIDTH; column++){
+				pixels[offset + column] = tinted[i++];
+			}
+			offset += stride;
+		}
+	}
+	
+	/**
+	 * Returns the pixels of a glyph in the given colors, tinting it the first time it is asked for.
+	 * @param glyph The character
+	 * @param foreground The RGB value of the lit pixels
+	 * @param background The RGB value of the other pixels
+	 * @return The pixels, row by row
+	 */
+	private int[] tinted(char glyph, int foreground, int background){
+		long key = ((long)foreground << 32) | (background & 0xffffffffL);
+		int[][] atlas = lastAtlas;
+		if (atlas == null || key != lastKey) {
+			atlas = atlases.get(key);
+			if (atlas == null) {
+				atlas = new int[256][];
+				atlases.put(key, atlas);
+			}
+			lastKey = key;
+			lastAtlas = atlas;
+		}
+		
+		int[] tinted = atlas[glyph];
+		if (tinted == null) {
+			boolean[] mask = masks[glyph];
+			tinted = new int[mask.length];
+			for (int i = 0; i < mask.length; i++){
+				tinted[i] = mask[i] ? foreground : background;
+			}
+			atlas[glyph] = tinted;
+		}
+		return tinted;
+	}
+	
+}
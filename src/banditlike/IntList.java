@@ -0,0 +1,63 @@
+package banditlike;
+
+/**
+ * A growable list of primitive ints.
+ * @author Andrew Kim
+ */
+
+public class IntList {
+
+	private int[] values;
+	private int size;
+
+	/**
+	 * @return The number of values in the list
+	 */
+	public int size() { return size; }
+
+	/**
+	 * Class constructor.
+	 * @param capacity The initial capacity
+	 */
+	public IntList(int capacity){
+		this.values = new int[Math.max(capacity, 4)];
+	}
+
+	/**
+	 * @param i The index
+	 * @return The value at the index
+	 */
+	public int get(int i){
+		return values[i];
+	}
+
+	/**
+	 * Replaces the value at an index.
+	 * @param i The index
+	 * @param value The new value
+	 */
+	public void set(int i, int value){
+		values[i] = value;
+	}
+
+	/**
+	 * Adds a value to the end of the list.
+	 * @param value The value to add
+	 */
+	public void add(int value){
+		if (size == values.length){
+			int[] grown = new int[values.length * 2];
+			System.arraycopy(values, 0, grown, 0, size);
+			values = grown;
+		}
+		values[size++] = value;
+	}
+
+	/**
+	 * Removes every value, keeping the capacity.
+	 */
+	public void clear(){
+		size = 0;
+	}
+
+}
@@ -0,0 +1,110 @@
+package banditlike;
+
+/**
+ * An action a creature has decided on but not carried out yet.
+ * In the parallel simulation, every creature due in a turn plans its intent at the same time, reading a world nobody
+ * is changing; the intents are then carried out one at a time, in turn order, each checked again against the world
+ * as it is by then. A creature can chain several intents to carry them out one after the other.
+ * @author Andrew Kim
+ */
+
+public class Intent {
+	
+	/**
+	 * The kinds of action.
+	 */
+	public enum Kind {
+		/** Step by (dx, dy), attacking whoever of another kind stands there. */
+		MOVE,
+		/** Attack the target, if it is still alive and next to the creature. */
+		ATTACK,
+		/** Create a child at an offset of (dx, dy), if the cell is still free. */
+		SPAWN
+	}
+	
+	private Kind kind;
+	private int dx;
+	private int dy;
+	private Creature target;
+	private Intent next;
+	
+	/**
+	 * @return kind
+	 */
+	public Kind kind() { return kind; }
+	
+	/**
+	 * @return The change in x of a move or spawn
+	 */
+	public int dx() { return dx; }
+	
+	/**
+	 * @return The change in y of a move or spawn
+	 */
+	public int dy() { return dy; }
+	
+	/**
+	 * @return The creature to attack
+	 */
+	public Creature target() { return target; }
+	
+	/**
+	 * @return The intent to carry out after this one, if any
+	 */
+	public Intent next() { return next; }
+	
+	/**
+	 * Class constructor.
+	 * @param kind The kind of action
+	 * @param dx The change in x
+	 * @param dy The change in y
+	 * @param target The creature to attack
+	 */
+	private Intent(Kind kind, int dx, int dy, Creature target){
+		this.kind = kind;
+		this.dx = dx;
+		this.dy = dy;
+		this.target = target;
+	}
+	
+	/**
+	 * @param dx Change in x
+	 * @param dy Change in y
+	 * @return An intent to move
+	 */
+	public static Intent move(int dx, int dy){
+		return new Intent(Kind.MOVE, dx, dy, null);
+	}
+	
+	/**
+	 * @param target The creature to attack
+	 * @return An intent to attack
+	 */
+	public static Intent attack(Creature target){
+		return new Intent(Kind.ATTACK, 0, 0, target);
+	}
+	
+	/**
+	 * @param dx The x offset of the child
+	 * @param dy The y offset of the child
+	 * @return An intent to spawn a child
+	 */
+	public static Intent spawn(int dx, int dy){
+		return new Intent(Kind.SPAWN, dx, dy, null);
+	}
+	
+	/**
+	 * Chains another intent after the last one of this chain.
+	 * @param intent The intent to carry out afterwards
+	 * @return This
+	 */
+	public Intent then(Intent intent){
+		Intent last = this;
+		while (last.next != null){
+			last = last.next;
+		}
+		last.next = intent;
+		return this;
+	}
+	
+}
@@ -0,0 +1,79 @@
+package banditlike;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Lets a batch of creatures plan their intents for a turn, splitting the batch across a fork/join pool.
+ * Planning only reads the world, and each creature draws from its own random stream seeded by its id and the turn,
+ * so the intents do not depend on how the batch is split or in which order the threads run.
+ * @author Andrew Kim
+ */
+
+public class IntentPass extends RecursiveAction {
+	
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * Batches smaller than this are not split up.
+	 */
+	public static final int SPLIT_SIZE = 256;
+	
+	private World world;
+	private List<Creature> creatures;
+	private long turn;
+	private int from;
+	private int to;
+	
+	/**
+	 * Plans the intents of every given creature.
+	 * @param world The world the creatures are in
+	 * @param creatures The creatures due in the turn
+	 * @param turn The turn being planned
+	 * @param pool The pool to run on, or null to run on the calling thread. When called from a pool task, the batch is split across that pool instead
+	 */
+	public static void run(World world, List<Creature> creatures, long turn, ForkJoinPool pool){
+		IntentPass pass = new IntentPass(world, creatures, turn, 0, creatures.size());
+		if (pool == null || creatures.size() <= SPLIT_SIZE){
+			pass.compute();
+		} else if (ForkJoinTask.inForkJoinPool()){
+			pass.invoke();
+		} else {
+			pool.invoke(pass);
+		}
+	}
+	
+	/**
+	 * Class constructor.
+	 * @param world The world the creatures are in
+	 * @param creatures The creatures due in the turn
+	 * @param turn The turn being planned
+	 * @param from The first index to plan
+	 * @param to One past the last index to plan
+	 */
+	private IntentPass(World world, List<Creature> creatures, long turn, int from, int to){
+		this.world = world;
+		this.creatures = creatures;
+		this.turn = turn;
+		this.from = from;
+		this.to = to;
+	}
+	
+	@Override
+	protected void compute(){
+		if (to - from > SPLIT_SIZE){
+			int middle = (from + to) >>> 1;
+			invokeAll(new IntentPass(world, creatures, turn, from, middle),
+					new IntentPass(world, creatures, turn, middle, to));
+			return;
+		}
+		
+		for (int i = from; i < to; i++){
+			Creature creature = creatures.get(i);
+			creature.plan(world.creatureRandom(creature, turn));
+		}
+	}
+	
+}
@@ -0,0 +1,87 @@
+package banditlike;
+
+import java.util.BitSet;
+
+/**
+ * Sparse storage for the items lying on the ground.
+ * Each level keeps a map from packed cell index to item, plus a bitset marking which cells hold an item.
+ * Memory grows with the number of items instead of the size of the map.
+ * @author Andrew Kim
+ */
+
+public class ItemLayer {
+
+	private int width;
+	private LongMap<Item>[] items;
+	private BitSet[] occupied;
+
+	/**
+	 * Class constructor.
+	 * @param width Width of the world
+	 * @param height Height of the world
+	 * @param depth Depth of the world
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public ItemLayer(int width, int height, int depth){
+		this.width = width;
+		this.items = new LongMap[depth];
+		this.occupied = new BitSet[depth];
+
+		for (int z = 0; z < depth; z++){
+			items[z] = new LongMap<Item>(64);
+			occupied[z] = new BitSet(width * height);
+		}
+	}
+
+	/**
+	 * @param x The x value
+	 * @param y The y value
+	 * @param z The z value
+	 * @return Whether an item lies in the given coordinates
+	 */
+	public boolean has(int x, int y, int z){
+		return occupied[z].get(y * width + x);
+	}
+
+	/**
+	 * @param x The x value
+	 * @param y The y value
+	 * @param z The z value
+	 * @return The item in the given coordinates, if any
+	 */
+	public Item item(int x, int y, int z){
+		int index = y * width + x;
+		if (!occupied[z].get(index)){
+			return null;
+		}
+		return items[z].get(index);
+	}
+
+	/**
+	 * Places an item in the given coordinates, replacing any item already there.
+	 * @param x The x value
+	 * @param y The y value
+	 * @param z The z value
+	 * @param item The item to place
+	 */
+	public void put(int x, int y, int z, Item item){
+		int index = y * width + x;
+		items[z].put(index, item);
+		occupied[z].set(index);
+	}
+
+	/**
+	 * Removes the item in the given coordinates, if any.
+	 * @param x The x value
+	 * @param y The y value
+	 * @param z The z value
+	 */
+	public void remove(int x, int y, int z){
+		int index = y * width + x;
+		if (occupied[z].get(index)){
+			items[z].remove(index);
+			occupied[z].clear(index);
+		}
+	}
+
+}
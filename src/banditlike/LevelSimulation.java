@@ -0,0 +1,222 @@
+package banditlike;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The creatures of one level of the world, and everything needed to simulate them apart from the other levels.
+ * Creatures only meet creatures on their own level, so each level keeps its own creature list, scheduler, id counter
+ * and scratch buffers, and the world can run every level's turn at the same time. The only thing that crosses levels
+ * is a creature taking the stairs; while levels are running, such moves are queued here and carried out by the world
+ * once every level has finished its turn.
+ * @author Andrew Kim
+ */
+
+public class LevelSimulation {
+	
+	/**
+	 * A move to another level, waiting for the end of the turn.
+	 */
+	public static class Handoff {
+		private Creature creature;
+		private int x;
+		private int y;
+		private int z;
+		
+		/**
+		 * Class constructor.
+		 * @param creature The creature taking the stairs
+		 * @param x The x value to arrive at
+		 * @param y The y value to arrive at
+		 * @param z The level to arrive at
+		 */
+		public Handoff(Creature creature, int x, int y, int z){
+			this.creature = creature;
+			this.x = x;
+			this.y = y;
+			this.z = z;
+		}
+		
+		/**
+		 * @return creature
+		 */
+		public Creature creature() { return creature; }
+		
+		/**
+		 * @return x
+		 */
+		public int x() { return x; }
+		
+		/**
+		 * @return y
+		 */
+		public int y() { return y; }
+		
+		/**
+		 * @return z
+		 */
+		public int z() { return z; }
+	}
+	
+	private World world;
+	private int z;
+	private List<Creature> creatures;
+	private TurnScheduler scheduler;
+	private int nextId;
+	private List<Handoff> handoffs;
+	
+	/**
+	 * The turn the level stopped running, while it is not the active level, or -1.
+	 */
+	private long pausedAt;
+	
+	/**
+	 * Scratch buffers for the world's search for empty space on this level.
+	 */
+	private BitSet spaceVisited;
+	private int[] spaceQueue;
+	
+	/**
+	 * Class constructor.
+	 * @param world The world the level is in
+	 * @param z The level
+	 * @param spaceCells The number of cells the search for empty space may visit
+	 */
+	public LevelSimulation(World world, int z, int spaceCells){
+		this.world = world;
+		this.z = z;
+		this.creatures = new ArrayList<Creature>();
+		this.scheduler = new TurnScheduler();
+		this.handoffs = new ArrayList<Handoff>();
+		this.pausedAt = -1;
+		this.spaceVisited = new BitSet(spaceCells);
+		this.spaceQueue = new int[spaceCells];
+	}
+	
+	/**
+	 * @return The creatures on the level
+	 */
+	public List<Creature> creatures() { return creatures; }
+	
+	/**
+	 * @return The scheduler of the level
+	 */
+	public TurnScheduler scheduler() { return scheduler; }
+	
+	/**
+	 * @return spaceVisited
+	 */
+	public BitSet spaceVisited() { return spaceVisited; }
+	
+	/**
+	 * @return spaceQueue
+	 */
+	public int[] spaceQueue() { return spaceQueue; }
+	
+	/**
+	 * Hands out a new creature id. Ids of different levels never clash, since each level only hands out
+	 * numbers that leave its own level number when divided by the depth, and they do not depend on thread timing.
+	 * @return The id
+	 */
+	public int newId(){
+		return nextId++ * world.depth() + z;
+	}
+	
+	/**
+	 * Adds a creature to the level and schedules it to act from the next turn.
+	 * @param creature The creature
+	 */
+	public void add(Creature creature){
+		creatures.add(creature);
+		scheduler.add(creature);
+	}
+	
+	/**
+	 * Takes a creature off the level.
+	 * @param creature The creature
+	 */
+	public void remove(Creature creature){
+		creatures.remove(creature);
+		scheduler.remove(creature);
+	}
+	
+	/**
+	 * Queues a move to another level until the end of the turn.
+	 * @param handoff The move
+	 */
+	public void handoff(Handoff handoff){
+		handoffs.add(handoff);
+	}
+	
+	/**
+	 * Returns the queued moves to other levels, in the order they were made, and forgets them.
+	 * @return The moves
+	 */
+	public List<Handoff> takeHandoffs(){
+		List<Handoff> taken = handoffs;
+		handoffs = new ArrayList<Handoff>();
+		return taken;
+	}
+	
+	/**
+	 * Notes that the level stops running, because the active zone is on another level.
+	 * @param turn The current turn of the world
+	 */
+	public void pause(long turn){
+		if (pausedAt < 0) {
+			pausedAt = turn;
+		}
+	}
+	
+	/**
+	 * Makes the level run again after a pause. Every creature on it becomes dormant as of the pause, apart from
+	 * the focus, so only the creatures that come into the active zone wake up and catch up.
+	 * @param focus The creature the active zone is centred on
+	 */
+	public void resume(Creature focus){
+		if (pausedAt < 0) {
+			return;
+		}
+		for (Creature creature : creatures){
+			if (creature != focus && !creature.isDormant()) {
+				world.makeDormant(creature, pausedAt);
+			}
+		}
+		pausedAt = -1;
+	}
+	
+	/**
+	 * Runs one turn of the level.
+	 * Creatures due in the turn but outside the active zone become dormant instead of acting.
+	 * The line of sight of every perceiving creature is brought up to date first, and in parallel mode the creatures
+	 * plan their intents, both split across the pool.
+	 * @param pool The pool to split work across
+	 */
+	public void tick(final ForkJoinPool pool){
+		scheduler.runTurn(new TurnScheduler.TurnListener(){
+			@Override
+			public void turnStarting(List<Creature> due){
+				List<Creature> active = new ArrayList<Creature>();
+				List<Creature> viewers = new ArrayList<Creature>();
+				for (Creature creature : due){
+					if (!world.isInActiveZone(creature)){
+						world.makeDormant(creature, world.turns() - 1);
+						continue;
+					}
+					active.add(creature);
+					if (creature.perceives()){
+						viewers.add(creature);
+					}
+				}
+				VisibilityPass.run(world, viewers, pool);
+				
+				if (world.isParallel()) {
+					IntentPass.run(world, active, scheduler.turns(), pool);
+				}
+			}
+		});
+	}
+	
+}
@@ -0,0 +1,89 @@
+package banditlike;
+
+/**
+ * Walks the points of a line one at a time, without creating any objects.
+ * We use Bresenham's line algorithm to find the points within a line.
+ * A cursor can be reset and reused for any number of lines:
+ * <pre>
+ * cursor.reset(x0, y0, x1, y1);
+ * while (cursor.next()) {
+ *     ... cursor.x(), cursor.y() ...
+ * }
+ * </pre>
+ * @author Andrew Kim
+ */
+
+public class LineCursor {
+
+	private int x;
+	private int y;
+	private int endX;
+	private int endY;
+	private int dx;
+	private int dy;
+	private int sx;
+	private int sy;
+	private int err;
+	private boolean started;
+	private boolean done;
+
+	/**
+	 * @return The x value of the current point
+	 */
+	public int x() { return x; }
+
+	/**
+	 * @return The y value of the current point
+	 */
+	public int y() { return y; }
+
+	/**
+	 * Starts walking a new line. The first call to next() moves to the initial point.
+	 * @param x0 Initial x value
+	 * @param y0 Initial y value
+	 * @param x1 Final x value
+	 * @param y1 Final y value
+	 * @return This
+	 */
+	public LineCursor reset(int x0, int y0, int x1, int y1){
+		this.x = x0;
+		this.y = y0;
+		this.endX = x1;
+		this.endY = y1;
+		this.dx = Math.abs(x1 - x0);
+		this.dy = Math.abs(y1 - y0);
+		this.sx = x0 < x1 ? 1 : -1;
+		this.sy = y0 < y1 ? 1 : -1;
+		this.err = dx - dy;
+		this.started = false;
+		this.done = false;
+		return this;
+	}
+
+	/**
+	 * Moves to the next point of the line.
+	 * @return false once the final point has been passed
+	 */
+	public boolean next(){
+		if (!started){
+			started = true;
+			return true;
+		}
+		if (done || (x == endX && y == endY)){
+			done = true;
+			return false;
+		}
+
+		int e2 = err * 2;
+		if (e2 > -dx){
+			err -= dy;
+			x += sx;
+		}
+		if (e2 < dx){
+			err += dx;
+			y += sy;
+		}
+		return true;
+	}
+
+}
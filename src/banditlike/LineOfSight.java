@@ -0,0 +1,68 @@
+package banditlike;
+
+/**
+ * Answers which tiles a creature can see on one level of the world.
+ * Each creature's visible tiles are computed by shadowcasting the first time they are asked for, and kept
+ * until the creature moves or a tile of the level is dug out. Vision is symmetric and blocked by anything that is not ground.
+ * @author Andrew Kim
+ */
+
+public class LineOfSight {
+
+	private World world;
+	private int z;
+	private ShadowCaster caster;
+
+	/**
+	 * Class constructor.
+	 * @param world The world to look in
+	 * @param z The level this service answers for
+	 */
+	public LineOfSight(World world, int z){
+		this.world = world;
+		this.z = z;
+		this.caster = new ShadowCaster();
+	}
+
+	/**
+	 * Checks if a creature on this level can see a tile.
+	 * @param viewer The creature looking
+	 * @param wx The x value of the tile
+	 * @param wy The y value of the tile
+	 * @param wz The z value of the tile
+	 * @return Whether the tile is within the creature's vision radius and not hidden behind walls
+	 */
+	public boolean canSee(Creature viewer, int wx, int wy, int wz){
+		if (wz != z){
+			return false;
+		}
+		return visibility(viewer).isVisible(wx, wy, wz);
+	}
+
+	/**
+	 * Returns the creature's visible tiles, recomputing them if they are stale.
+	 * @param viewer The creature looking
+	 * @return The creature's visibility
+	 */
+	public Visibility visibility(Creature viewer){
+		return visibility(viewer, caster);
+	}
+	
+	/**
+	 * Returns the creature's visible tiles, recomputing them with the given caster if they are stale.
+	 * Used by the world's visibility pass, where each thread brings its own caster.
+	 * @param viewer The creature looking
+	 * @param caster The caster to use
+	 * @return The creature's visibility
+	 */
+	public Visibility visibility(Creature viewer, ShadowCaster caster){
+		Visibility visibility = viewer.visibility();
+		int radius = viewer.visionRadius();
+
+		if (!visibility.isCurrent(viewer.x(), viewer.y(), z, radius, world.tileVersion(z))){
+			visibility.compute(world, caster, viewer.x(), viewer.y(), z, radius);
+		}
+		return visibility;
+	}
+
+}
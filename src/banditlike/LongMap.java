@@ -0,0 +1,158 @@
+package banditlike;
+
+/**
+ * A hash map from primitive long keys to values.
+ * Uses open addressing with linear probing, so no entry objects or boxed keys are created.
+ * @author Andrew Kim
+ * @param <V> The type of the values
+ */
+
+public class LongMap<V> {
+
+	private long[] keys;
+	private Object[] values;
+	private int size;
+	private int mask;
+
+	/**
+	 * @return The number of entries in the map
+	 */
+	public int size() { return size; }
+
+	/**
+	 * Class constructor.
+	 * @param expected The number of entries expected, used to size the table
+	 */
+	public LongMap(int expected){
+		int capacity = 16;
+		while (capacity < expected * 2){
+			capacity <<= 1;
+		}
+		this.keys = new long[capacity];
+		this.values = new Object[capacity];
+		this.mask = capacity - 1;
+	}
+
+	/**
+	 * @param key The key
+	 * @return The value for the key, or null if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(long key){
+		int i = slot(key);
+		while (values[i] != null){
+			if (keys[i] == key){
+				return (V)values[i];
+			}
+			i = (i + 1) & mask;
+		}
+		return null;
+	}
+
+	/**
+	 * Associates a value with a key, replacing any previous value.
+	 * @param key The key
+	 * @param value The value, which must not be null
+	 */
+	public void put(long key, V value){
+		int i = slot(key);
+		while (values[i] != null){
+			if (keys[i] == key){
+				values[i] = value;
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+
+		keys[i] = key;
+		values[i] = value;
+		size++;
+
+		if (size * 2 > keys.length){
+			grow();
+		}
+	}
+
+	/**
+	 * Removes the value for a key.
+	 * Later entries of the same probe run are shifted back so lookups never need tombstones.
+	 * @param key The key
+	 * @return The removed value, or null if there was none
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(long key){
+		int i = slot(key);
+		while (values[i] != null){
+			if (keys[i] == key){
+				V removed = (V)values[i];
+				shiftBack(i);
+				size--;
+				return removed;
+			}
+			i = (i + 1) & mask;
+		}
+		return null;
+	}
+
+	/**
+	 * Removes every entry, keeping the current table size.
+	 */
+	public void clear(){
+		for (int i = 0; i < values.length; i++){
+			values[i] = null;
+		}
+		size = 0;
+	}
+
+	/**
+	 * Closes the gap left at the given slot by moving later entries of the run into it.
+	 * @param gap The emptied slot
+	 */
+	private void shiftBack(int gap){
+		int i = gap;
+		while (true){
+			i = (i + 1) & mask;
+			if (values[i] == null){
+				break;
+			}
+
+			int home = slot(keys[i]);
+			if (((i - home) & mask) >= ((i - gap) & mask)){
+				keys[gap] = keys[i];
+				values[gap] = values[i];
+				gap = i;
+			}
+		}
+		values[gap] = null;
+	}
+
+	/**
+	 * Doubles the table and reinserts every entry.
+	 */
+	@SuppressWarnings("unchecked")
+	private void grow(){
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+
+		keys = new long[oldKeys.length * 2];
+		values = new Object[oldValues.length * 2];
+		mask = keys.length - 1;
+		size = 0;
+
+		for (int i = 0; i < oldKeys.length; i++){
+			if (oldValues[i] != null){
+				put(oldKeys[i], (V)oldValues[i]);
+			}
+		}
+	}
+
+	/**
+	 * @param key The key
+	 * @return The home slot of the key
+	 */
+	private int slot(long key){
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int)(h ^ (h >>> 32)) & mask;
+	}
+
+}
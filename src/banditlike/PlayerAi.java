@@ -32,15 +32,21 @@ public class PlayerAi extends CreatureAi {
 	@Override
 	public void onEnter(int x, int y, int z, Tile tile){
 		if(tile.isGround()){
-			creature.x = x;
-			creature.y = y;
-			creature.z = z;
+			creature.moveTo(x, y, z);
 		} else if(tile.isDiggable()){
 			creature.dig(x,y,z);
 		}
 	}
 	
 	
+	/**
+	 * The player reads every message.
+	 */
+	@Override
+	public boolean isListening(){
+		return true;
+	}
+	
 	/**
 	 * Sends the message to the player (and then to the screen) when it receives a message.
 	 */
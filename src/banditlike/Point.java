@@ -1,9 +1,5 @@
 package banditlike;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-
 /**
  * Basic properties for a point. Used to make a line, and ultimately the field of view.
  * @author Andrew Kim
@@ -60,27 +56,4 @@ public class Point {
 		return true;
 	}
 
-	/**
-	 * Lists the eight neighboring points of the given point.
-	 * The points are shuffled so no priority is given to a certain direction.
-	 * @return Neighboring points from the eight cardinal directions.
-	 */
-	public List<Point> neighbors8(){
-		List<Point> points = new ArrayList<Point>();
-		
-		for (int ox = -1; ox < 2; ox++){
-			for (int oy = -1; oy < 2; oy++){
-				if (ox == 0 && oy == 0)
-					continue;
-				
-				int nx = x+ox;
-				int ny = y+oy;
-				
-				points.add(new Point(nx, ny, z));
-			}
-		}
-
-		Collections.shuffle(points);
-		return points;
-	}
 }
@@ -0,0 +1,96 @@
+package banditlike;
+
+import java.util.Random;
+
+/**
+ * The random number generators of a world, all derived from a single seed.
+ * Every subsystem gets its own independent stream on every level, so levels can be generated and simulated
+ * on separate threads without sharing a generator, and a run can be replayed from its seed.
+ * A stream must only be used by one thread at a time.
+ * @author Andrew Kim
+ */
+
+public class RandomStreams {
+
+	/**
+	 * The parts of the game that draw random numbers.
+	 */
+	public enum Subsystem {
+		TERRAIN,
+		STAIRS,
+		PLACEMENT,
+		AI,
+		COMBAT
+	}
+
+	private long seed;
+	private Random[][] streams;
+
+	/**
+	 * @return The seed all streams are derived from
+	 */
+	public long seed() { return seed; }
+
+	/**
+	 * Class constructor.
+	 * @param seed The seed to derive the streams from
+	 * @param depth The number of levels
+	 */
+	public RandomStreams(long seed, int depth){
+		this.seed = seed;
+		this.streams = new Random[Subsystem.values().length][depth];
+
+		for (Subsystem subsystem : Subsystem.values()){
+			for (int z = 0; z < depth; z++){
+				streams[subsystem.ordinal()][z] = new Random(streamSeed(subsystem, z));
+			}
+		}
+	}
+
+	/**
+	 * @param subsystem The subsystem drawing the numbers
+	 * @param z The level the numbers are for
+	 * @return The stream of the subsystem on the level
+	 */
+	public Random stream(Subsystem subsystem, int z){
+		return streams[subsystem.ordinal()][z];
+	}
+
+	/**
+	 * Creates a stream for one creature in one turn.
+	 * It depends only on the world seed, the creature's id and the turn, so creatures can draw from their own streams
+	 * on any thread, in any order, and still draw the same numbers.
+	 * @param id The id of the creature
+	 * @param turn The turn
+	 * @return A new stream
+	 */
+	public Random creatureStream(int id, long turn){
+		long key = mix(((long)id << 32) ^ turn) + Subsystem.values().length;
+		return new Random(mix(seed ^ mix(key) * 0x9E3779B97F4A7C15L));
+	}
+
+	/**
+	 * Derives the seed of one stream from the world seed.
+	 * @param subsystem The subsystem
+	 * @param z The level
+	 * @return The seed of the stream
+	 */
+	private long streamSeed(Subsystem subsystem, int z){
+		long key = ((long)subsystem.ordinal() << 32) | (z & 0xFFFFFFFFL);
+		return mix(seed + mix(key + 1) * 0x9E3779B97F4A7C15L);
+	}
+
+	/**
+	 * Scrambles the bits of a value, so nearby inputs give unrelated outputs.
+	 * This is the finalizer of the SplitMix64 generator.
+	 * @param value The value to scramble
+	 * @return The scrambled value
+	 */
+	public static long mix(long value){
+		long h = value;
+		h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+		h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+		return h ^ (h >>> 31);
+	}
+
+}
@@ -0,0 +1,189 @@
+package banditlike;
+
+/**
+ * Labels the connected open areas (regions) of a level.
+ * Uses two passes with a union-find over primitive arrays: the first pass gives each cell a provisional
+ * label and records which labels touch, the second resolves every label to its region and collects
+ * the size and bounding box of each region.
+ * Cells are connected in all eight directions. A labeller can be reused for any number of levels of the same size.
+ * @author Andrew Kim
+ */
+
+public class RegionLabeller {
+
+	private int width;
+	private int height;
+
+	/**
+	 * Union-find parent of each provisional label, and the region each root label resolves to.
+	 */
+	private int[] parent;
+	private int[] resolved;
+
+	private int count;
+	private int[] sizes;
+	private int[] minX;
+	private int[] minY;
+	private int[] maxX;
+	private int[] maxY;
+
+	/**
+	 * @return The number of regions found by the last call to label
+	 */
+	public int count() { return count; }
+
+	/**
+	 * @param region The region number, between 1 and count()
+	 * @return The number of cells in the region
+	 */
+	public int size(int region) { return sizes[region]; }
+
+	/**
+	 * @param region The region number
+	 * @return The leftmost x value of the region
+	 */
+	public int minX(int region) { return minX[region]; }
+
+	/**
+	 * @param region The region number
+	 * @return The topmost y value of the region
+	 */
+	public int minY(int region) { return minY[region]; }
+
+	/**
+	 * @param region The region number
+	 * @return The rightmost x value of the region
+	 */
+	public int maxX(int region) { return maxX[region]; }
+
+	/**
+	 * @param region The region number
+	 * @return The bottommost y value of the region
+	 */
+	public int maxY(int region) { return maxY[region]; }
+
+	/**
+	 * Class constructor.
+	 * @param width Width of the levels to label
+	 * @param height Height of the levels to label
+	 */
+	public RegionLabeller(int width, int height){
+		this.width = width;
+		this.height = height;
+
+		// A new label is only made when none of the four earlier neighbours is open,
+		// so there can be at most one per 2x2 block.
+		int labels = ((width + 1) / 2) * ((height + 1) / 2) + 1;
+		this.parent = new int[labels];
+		this.resolved = new int[labels];
+		this.sizes = new int[labels];
+		this.minX = new int[labels];
+		this.minY = new int[labels];
+		this.maxX = new int[labels];
+		this.maxY = new int[labels];
+	}
+
+	/**
+	 * Labels every open cell of a level with its region number, starting at 1.
+	 * Blocked cells get 0. Regions are numbered in the order their first cell appears, row by row.
+	 * @param tiles The tile ordinals of the level, indexed by <code>y * width + x</code>
+	 * @param blocked The tile ordinal that separates regions
+	 * @param regions The array to fill in, indexed the same way as tiles
+	 * @return The number of regions
+	 */
+	public int label(byte[] tiles, byte blocked, int[] regions){
+		int labels = 0;
+
+		for (int y = 0; y < height; y++){
+			for (int x = 0; x < width; x++){
+				int i = y * width + x;
+				if (tiles[i] == blocked){
+					regions[i] = 0;
+					continue;
+				}
+
+				int label = 0;
+				if (x > 0)
+					label = join(label, regions[i - 1]);
+				if (y > 0){
+					if (x > 0)
+						label = join(label, regions[i - width - 1]);
+					label = join(label, regions[i - width]);
+					if (x < width - 1)
+						label = join(label, regions[i - width + 1]);
+				}
+
+				if (label == 0){
+					label = ++labels;
+					parent[label] = label;
+					resolved[label] = 0;
+				}
+				regions[i] = label;
+			}
+		}
+
+		count = 0;
+		for (int y = 0; y < height; y++){
+			for (int x = 0; x < width; x++){
+				int i = y * width + x;
+				if (regions[i] == 0)
+					continue;
+
+				int root = find(regions[i]);
+				int region = resolved[root];
+				if (region == 0){
+					region = ++count;
+					resolved[root] = region;
+					sizes[region] = 0;
+					minX[region] = x;
+					minY[region] = y;
+					maxX[region] = x;
+					maxY[region] = y;
+				}
+
+				regions[i] = region;
+				sizes[region]++;
+				if (x < minX[region]) minX[region] = x;
+				if (x > maxX[region]) maxX[region] = x;
+				maxY[region] = y;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Merges a neighbour's label into the label chosen so far for a cell.
+	 * @param label The label chosen so far, or 0 if none
+	 * @param neighbor The neighbour's label, or 0 if the neighbour is blocked
+	 * @return The label to use for the cell
+	 */
+	private int join(int label, int neighbor){
+		if (neighbor == 0)
+			return label;
+		if (label == 0)
+			return neighbor;
+
+		int a = find(label);
+		int b = find(neighbor);
+		if (a < b){
+			parent[b] = a;
+		} else if (b < a){
+			parent[a] = b;
+		}
+		return label;
+	}
+
+	/**
+	 * Finds the root of a label, halving the path on the way.
+	 * @param label The label
+	 * @return The root label
+	 */
+	private int find(int label){
+		while (parent[label] != label){
+			parent[label] = parent[parent[label]];
+			label = parent[label];
+		}
+		return label;
+	}
+
+}
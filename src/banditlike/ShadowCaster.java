@@ -0,0 +1,174 @@
+package banditlike;
+
+/**
+ * Symmetric recursive shadowcasting.
+ * The area around the origin is split into four quadrants, each scanned row by row outwards. A row is a range of
+ * columns between two slopes; walls narrow the range for the rows behind them, so shadowed tiles are never looked at.
+ * A floor tile is visible only if its centre lies within the visible range, which makes vision symmetric:
+ * if A can see B, B can see A. Walls are visible when any part of them is lit.
+ * Slopes are kept as integer fractions so the result does not depend on floating point rounding.
+ * A caster keeps state while casting and must not be shared between threads.
+ * @author Andrew Kim
+ */
+
+public class ShadowCaster {
+
+	/**
+	 * Receives the tiles found to be visible.
+	 */
+	public interface Visitor {
+
+		/**
+		 * Called for each visible tile inside the world. A tile may be reported more than once.
+		 * @param x The x value of the tile
+		 * @param y The y value of the tile
+		 */
+		public void reveal(int x, int y);
+
+	}
+
+	private World world;
+	private Visitor visitor;
+	private int originX;
+	private int originY;
+	private int z;
+	private int radius;
+	private int quadrant;
+
+	/**
+	 * Finds every tile visible from a point within a radius.
+	 * A tile blocks vision when it is not ground. Tiles outside the circle of the radius are not revealed.
+	 * @param world The world to look in
+	 * @param x The x value of the origin
+	 * @param y The y value of the origin
+	 * @param z The level
+	 * @param radius The vision radius
+	 * @param visitor Receives the visible tiles, including the origin
+	 */
+	public void cast(World world, int x, int y, int z, int radius, Visitor visitor){
+		this.world = world;
+		this.visitor = visitor;
+		this.originX = x;
+		this.originY = y;
+		this.z = z;
+		this.radius = radius;
+
+		reveal(x, y);
+		for (quadrant = 0; quadrant < 4; quadrant++){
+			scan(1, -1, 1, 1, 1);
+		}
+
+		this.world = null;
+		this.visitor = null;
+	}
+
+	/**
+	 * Scans one row of the current quadrant and recurses into the rows behind it.
+	 * The visible range of the row is from startNum / startDen to endNum / endDen, in columns per row.
+	 * @param depth The distance of the row from the origin
+	 * @param startNum Numerator of the start slope
+	 * @param startDen Denominator of the start slope, always positive
+	 * @param endNum Numerator of the end slope
+	 * @param endDen Denominator of the end slope, always positive
+	 */
+	private void scan(int depth, int startNum, int startDen, int endNum, int endDen){
+		if (depth > radius){
+			return;
+		}
+
+		// Round depth * start half up, and depth * end half down, to find the columns the range touches.
+		int minCol = floorDiv(2 * depth * startNum + startDen, 2 * startDen);
+		int maxCol = -floorDiv(endDen - 2 * depth * endNum, 2 * endDen);
+
+		int previous = -1;
+		for (int col = minCol; col <= maxCol; col++){
+			int x = tileX(depth, col);
+			int y = tileY(depth, col);
+			boolean wall = blocks(x, y);
+
+			if (wall || (col * startDen >= depth * startNum && col * endDen <= depth * endNum)){
+				if (col * col + depth * depth <= radius * radius){
+					reveal(x, y);
+				}
+			}
+
+			if (previous == 1 && !wall){
+				startNum = 2 * col - 1;
+				startDen = 2 * depth;
+			}
+			if (previous == 0 && wall){
+				scan(depth + 1, startNum, startDen, 2 * col - 1, 2 * depth);
+			}
+			previous = wall ? 1 : 0;
+		}
+
+		if (previous == 0){
+			scan(depth + 1, startNum, startDen, endNum, endDen);
+		}
+	}
+
+	/**
+	 * @param x The x value
+	 * @param y The y value
+	 * @return Whether the tile blocks vision
+	 */
+	private boolean blocks(int x, int y){
+		return !world.tile(x, y, z).isGround();
+	}
+
+	/**
+	 * Reports a tile to the visitor if it lies inside the world.
+	 * @param x The x value
+	 * @param y The y value
+	 */
+	private void reveal(int x, int y){
+		if (x >= 0 && y >= 0 && x < world.width() && y < world.height()){
+			visitor.reveal(x, y);
+		}
+	}
+
+	/**
+	 * Converts a (row, column) position of the current quadrant to a world x value.
+	 * @param depth The row
+	 * @param col The column
+	 * @return The x value
+	 */
+	private int tileX(int depth, int col){
+		switch (quadrant){
+		case 0: return originX + col;
+		case 1: return originX + depth;
+		case 2: return originX + col;
+		default: return originX - depth;
+		}
+	}
+
+	/**
+	 * Converts a (row, column) position of the current quadrant to a world y value.
+	 * @param depth The row
+	 * @param col The column
+	 * @return The y value
+	 */
+	private int tileY(int depth, int col){
+		switch (quadrant){
+		case 0: return originY - depth;
+		case 1: return originY + col;
+		case 2: return originY + depth;
+		default: return originY + col;
+		}
+	}
+
+	/**
+	 * Integer division rounding towards negative infinity.
+	 * @param a The dividend
+	 * @param b The divisor, which must be positive
+	 * @return The quotient
+	 */
+	private static int floorDiv(int a, int b){
+		int q = a / b;
+		if ((a % b != 0) && (a < 0)){
+			q--;
+		}
+		return q;
+	}
+
+}
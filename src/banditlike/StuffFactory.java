@@ -26,11 +26,13 @@ public class StuffFactory {
 	 * Each player has a '@' glyph, is white, has 100 HP, 20 attack, and 0 defense.
 	 * @param messages List of messages, probably defined in PlayScreen
 	 * @param fov Field of view of player, probably defined in PlayScreen
-	 * @return The player object
+	 * @return The player object, or null if the first level has no empty ground left
 	 */
 	public Creature newPlayer(List<String> messages, FieldOfView fov){
 		Creature player = new Creature(world, '@', AsciiPanel.brightWhite, "player", 100, 20, 0);
-		world.addAtEmptyLocation(player,0);
+		if (!world.addAtEmptyLocation(player,0)) {
+			return null;
+		}
 		new PlayerAi(player, messages, fov);
 		return player;
 	}
@@ -39,11 +41,13 @@ public class StuffFactory {
 	 * Generates a new fungus.
 	 * Each fungus has a 'f' glyph, is green, has 10 HP, 0 attack, and 0 defense.
 	 * @param depth The level of depth the fungus should be in
-	 * @return The fungus object
+	 * @return The fungus object, or null if the level has no empty ground left
 	 */
 	public Creature newFungus(int depth){
 		Creature fungus = new Creature(world, 'f', AsciiPanel.green, "fungus", 10, 0, 0);
-		world.addAtEmptyLocation(fungus, depth);
+		if (!world.addAtEmptyLocation(fungus, depth)) {
+			return null;
+		}
 		new FungusAi(fungus, this);
 		return fungus;
 	}
@@ -52,11 +56,13 @@ public class StuffFactory {
 	 * Generates a new bat.
 	 * Each bat has a 'b' glyph, is yellow, has 15 HP, 5 attack, and 0 defense.
 	 * @param depth The level of depth the bat should be in
-	 * @return The bat object
+	 * @return The bat object, or null if the level has no empty ground left
 	 */
 	public Creature newBat(int depth){
 		Creature bat = new Creature(world, 'b', AsciiPanel.yellow, "bat", 15, 5, 0);
-		world.addAtEmptyLocation(bat, depth);
+		if (!world.addAtEmptyLocation(bat, depth)) {
+			return null;
+		}
 		new BatAi(bat);
 		return bat;
 	}
@@ -65,11 +71,13 @@ public class StuffFactory {
 	 * Generates a new rock.
 	 * Each rock has a ',' glyph, and is yellow.
 	 * @param depth The level of depth the rock should be in
-	 * @return The rock object
+	 * @return The rock object, or null if the level has no empty ground left
 	 */
 	public Item newRock(int depth){
 		Item rock = new Item(',', AsciiPanel.yellow, "rock");
-		world.addAtEmptyLocation(rock, depth);
+		if (!world.addAtEmptyLocation(rock, depth)) {
+			return null;
+		}
 		return rock;
 	}
 	
@@ -77,11 +85,13 @@ public class StuffFactory {
 	 * Generates a new victory item.
 	 * The victory item has a '*' glyph, and is white.
 	 * @param depth The level of depth the item should be in
-	 * @return The object
+	 * @return The object, or null if the level has no empty ground left
 	 */
 	public Item newVictoryItem(int depth){
         Item item = new Item('*', AsciiPanel.brightWhite, "teddy bear");
-        world.addAtEmptyLocation(item, depth);
+        if (!world.addAtEmptyLocation(item, depth)) {
+            return null;
+        }
         return item;
     }
 
@@ -0,0 +1,118 @@
+package banditlike;
+
+import java.awt.Color;
+
+/**
+ * A grid of characters that screens draw into.
+ * Modelled on the drawing methods of AsciiPanel, so that a screen does not need to know whether it draws
+ * into the window or into a buffer in memory. Writing outside the grid throws an IllegalArgumentException.
+ * A null color stands for the terminal's default foreground or background color.
+ * @author Andrew Kim
+ */
+
+public interface Terminal {
+	
+	/**
+	 * @return The width of the terminal in characters
+	 */
+	public int getWidthInCharacters();
+	
+	/**
+	 * @return The height of the terminal in characters
+	 */
+	public int getHeightInCharacters();
+	
+	/**
+	 * Clears the whole terminal to spaces in the default colors.
+	 */
+	public void clear();
+	
+	/**
+	 * Fills a rectangle of the terminal with a character in the default colors.
+	 * @param character The character to fill with
+	 * @param x The leftmost column
+	 * @param y The topmost row
+	 * @param width The width of the rectangle
+	 * @param height The height of the rectangle
+	 */
+	public void clear(char character, int x, int y, int width, int height);
+	
+	/**
+	 * Writes a character in the default colors.
+	 * @param character The character
+	 * @param x The column
+	 * @param y The row
+	 */
+	public void write(char character, int x, int y);
+	
+	/**
+	 * Writes a character on the default background.
+	 * @param character The character
+	 * @param x The column
+	 * @param y The row
+	 * @param foreground The color of the character
+	 */
+	public void write(char character, int x, int y, Color foreground);
+	
+	/**
+	 * Writes a character.
+	 * @param character The character
+	 * @param x The column
+	 * @param y The row
+	 * @param foreground The color of the character
+	 * @param background The color behind the character
+	 */
+	public void write(char character, int x, int y, Color foreground, Color background);
+	
+	/**
+	 * Writes a string in the default colors.
+	 * @param string The string
+	 * @param x The column of the first character
+	 * @param y The row
+	 */
+	public void write(String string, int x, int y);
+	
+	/**
+	 * Writes a string on the default background.
+	 * @param string The string
+	 * @param x The column of the first character
+	 * @param y The row
+	 * @param foreground The color of the characters
+	 */
+	public void write(String string, int x, int y, Color foreground);
+	
+	/**
+	 * Writes a string.
+	 * @param string The string
+	 * @param x The column of the first character
+	 * @param y The row
+	 * @param foreground The color of the characters
+	 * @param background The color behind the characters
+	 */
+	public void write(String string, int x, int y, Color foreground, Color background);
+	
+	/**
+	 * Writes a string centered on a row, in the default colors.
+	 * @param string The string
+	 * @param y The row
+	 */
+	public void writeCenter(String string, int y);
+	
+	/**
+	 * Writes a string centered on a row, on the default background.
+	 * @param string The string
+	 * @param y The row
+	 * @param foreground The color of the characters
+	 */
+	public void writeCenter(String string, int y, Color foreground);
+	
+	/**
+	 * Writes a string centered on a row.
+	 * @param string The string
+	 * @param y The row
+	 * @param foreground The color of the characters
+	 * @param background The color behind the characters
+	 */
+	public void writeCenter(String string, int y, Color foreground, Color background);
+	
+}
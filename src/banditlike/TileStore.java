@@ -0,0 +1,118 @@
+package banditlike;
+
+import java.util.Arrays;
+
+/**
+ * Compact storage for the tiles of a world.
+ * Each level is one contiguous byte array holding <code>Tile.ordinal()</code>, indexed by <code>y * width + x</code>.
+ * @author Andrew Kim
+ */
+
+public class TileStore {
+
+	private static final Tile[] TILES = Tile.values();
+
+	private int width;
+	private int height;
+	private int depth;
+	private byte[][] levels;
+
+	/**
+	 * @return width
+	 */
+	public int width() { return width; }
+
+	/**
+	 * @return height
+	 */
+	public int height() { return height; }
+
+	/**
+	 * @return depth
+	 */
+	public int depth() { return depth; }
+
+	/**
+	 * Class constructor.
+	 * Every tile starts out as the given tile.
+	 * @param width Width of the store
+	 * @param height Height of the store
+	 * @param depth Depth of the store
+	 * @param fill The initial tile
+	 */
+	public TileStore(int width, int height, int depth, Tile fill){
+		this.width = width;
+		this.height = height;
+		this.depth = depth;
+		this.levels = new byte[depth][width * height];
+
+		if (fill.ordinal() != 0) {
+			for (int z = 0; z < depth; z++){
+				Arrays.fill(levels[z], (byte)fill.ordinal());
+			}
+		}
+	}
+
+	/**
+	 * Class constructor.
+	 * Copies a jagged tile array into the store.
+	 * @param tiles Tiles indexed by [x][y][z]
+	 */
+	public TileStore(Tile[][][] tiles){
+		this(tiles.length, tiles[0].length, tiles[0][0].length, Tile.FLOOR);
+
+		for (int z = 0; z < depth; z++){
+			for (int y = 0; y < height; y++){
+				for (int x = 0; x < width; x++){
+					levels[z][y * width + x] = (byte)tiles[x][y][z].ordinal();
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param x The x value
+	 * @param y The y value
+	 * @param z The z value
+	 * @return The tile in the given coordinates, or BOUNDS if outside the store
+	 */
+	public Tile tile(int x, int y, int z){
+		if (x < 0 || x >= width
+				|| y < 0 || y >= height
+				|| z < 0 || z >= depth){
+			return Tile.BOUNDS;
+		}
+		return TILES[levels[z][y * width + x]];
+	}
+
+	/**
+	 * Sets the tile in the given coordinates.
+	 * @param x The x value
+	 * @param y The y value
+	 * @param z The z value
+	 * @param tile The new tile
+	 */
+	public void set(int x, int y, int z, Tile tile){
+		levels[z][y * width + x] = (byte)tile.ordinal();
+	}
+
+	/**
+	 * Returns the raw array of a level, for loops that walk a whole level.
+	 * Changes to the array are changes to the store.
+	 * @param z The level
+	 * @return The tile ordinals of the level, indexed by <code>y * width + x</code>
+	 */
+	public byte[] level(int z){
+		return levels[z];
+	}
+
+	/**
+	 * Converts a raw value from <code>level(z)</code> back into a tile.
+	 * @param value The tile ordinal
+	 * @return The tile
+	 */
+	public static Tile tileOf(byte value){
+		return TILES[value];
+	}
+
+}
@@ -0,0 +1,229 @@
+package banditlike;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Decides which creatures act in each turn of the world, and in which order.
+ * Time is counted in ticks, TICKS_PER_TURN to a turn. Every creature gains energy at its speed and acts once it has
+ * a full turn's worth; the scheduler keeps that as the tick at which the creature can next act, in a priority queue.
+ * A creature of normal speed acts once a turn, a creature twice as fast acts twice.
+ * A creature with nothing to do can sleep for a number of turns, or until it is woken, and costs nothing meanwhile.
+ * Removed creatures are not taken out of the queue; their entries are skipped when they come up.
+ * @author Andrew Kim
+ */
+
+public class TurnScheduler {
+	
+	/**
+	 * Told about the creatures of a turn before they act.
+	 */
+	public interface TurnListener {
+		
+		/**
+		 * @param creatures The creatures due in the turn, in the order they act
+		 */
+		public void turnStarting(List<Creature> creatures);
+		
+	}
+	
+	public static final int TICKS_PER_TURN = 100;
+	public static final int NORMAL_SPEED = 100;
+	
+	/**
+	 * The number of turns to sleep for to sleep until woken.
+	 */
+	public static final long FOREVER = Long.MAX_VALUE;
+	
+	/**
+	 * A creature's place in the queue. Entries that come up in the same tick are taken in the order they were made.
+	 */
+	private static class Entry {
+		private long time;
+		private long sequence;
+		private Creature creature;
+		private boolean cancelled;
+	}
+	
+	private PriorityQueue<Entry> queue;
+	private LongMap<Entry> entries;
+	private long sequence;
+	
+	/**
+	 * The first tick of the next turn to run.
+	 */
+	private long turn;
+	
+	/**
+	 * The creature acting right now, and how long it asked to sleep for, or -1.
+	 */
+	private Creature acting;
+	private long actingSleep;
+	
+	/**
+	 * Class constructor.
+	 */
+	public TurnScheduler(){
+		this.queue = new PriorityQueue<Entry>(64, new Comparator<Entry>(){
+			@Override
+			public int compare(Entry a, Entry b){
+				if (a.time != b.time) {
+					return a.time < b.time ? -1 : 1;
+				}
+				return a.sequence < b.sequence ? -1 : (a.sequence == b.sequence ? 0 : 1);
+			}
+		});
+		this.entries = new LongMap<Entry>(64);
+	}
+	
+	/**
+	 * @return The number of turns run so far
+	 */
+	public long turns() { return turn / TICKS_PER_TURN; }
+	
+	/**
+	 * Schedules a new creature to act in the next turn.
+	 * @param creature The creature
+	 */
+	public void add(Creature creature){
+		schedule(creature, turn);
+	}
+	
+	/**
+	 * Stops scheduling a creature.
+	 * @param creature The creature
+	 */
+	public void remove(Creature creature){
+		cancel(creature);
+		if (creature == acting) {
+			actingSleep = FOREVER;
+		}
+	}
+	
+	/**
+	 * Skips a creature's actions for a number of turns.
+	 * A creature that is acting is next updated the given number of turns later; any other creature sleeps
+	 * through the given number of turns, starting with the next one.
+	 * @param creature The creature
+	 * @param turns The number of turns, at least 1, or FOREVER to sleep until woken
+	 */
+	public void sleep(Creature creature, long turns){
+		if (creature == acting) {
+			actingSleep = turns;
+			return;
+		}
+		cancel(creature);
+		if (turns != FOREVER) {
+			schedule(creature, turn + turns * TICKS_PER_TURN);
+		}
+	}
+	
+	/**
+	 * Makes a sleeping creature act in the next turn. Creatures that are already due are left as they are.
+	 * @param creature The creature
+	 */
+	public void wake(Creature creature){
+		Entry entry = entries.get(creature.id());
+		if (creature == acting || (entry != null && entry.time <= turn)) {
+			return;
+		}
+		cancel(creature);
+		schedule(creature, turn);
+	}
+	
+	/**
+	 * Runs one turn: every creature due in the turn acts, in order, as often as its speed allows.
+	 * If a creature throws, the exception is passed on and the creatures due that had not acted yet
+	 * stay in the queue, so they make up for it in the next turn.
+	 * @param starting Called with the creatures about to act, before the first of them does
+	 */
+	public void runTurn(TurnListener starting){
+		long end = turn + TICKS_PER_TURN;
+		
+		List<Entry> due = new ArrayList<Entry>();
+		List<Creature> creatures = new ArrayList<Creature>();
+		while (!queue.isEmpty() && queue.peek().time < end){
+			Entry entry = queue.poll();
+			if (!entry.cancelled) {
+				due.add(entry);
+				creatures.add(entry.creature);
+			}
+		}
+		turn = end;
+		starting.turnStarting(creatures);
+		
+		for (int i = 0; i < due.size(); i++){
+			Entry entry = due.get(i);
+			if (entry.cancelled) {
+				continue;
+			}
+			try {
+				act(entry);
+			} catch (RuntimeException e) {
+				for (Entry rest : due.subList(i + 1, due.size())){
+					if (!rest.cancelled) {
+						queue.add(rest);
+					}
+				}
+				throw e;
+			}
+		}
+		while (!queue.isEmpty() && queue.peek().time < end){
+			Entry entry = queue.poll();
+			if (!entry.cancelled) {
+				act(entry);
+			}
+		}
+	}
+	
+	/**
+	 * Lets a creature act, then schedules its next action. The creature is scheduled even if it throws.
+	 * @param entry The creature's entry, already taken from the queue
+	 */
+	private void act(Entry entry){
+		Creature creature = entry.creature;
+		entries.remove(creature.id());
+		
+		acting = creature;
+		actingSleep = -1;
+		try {
+			creature.update();
+		} finally {
+			acting = null;
+			if (actingSleep != FOREVER) {
+				long delay = actingSleep > 0
+						? actingSleep * TICKS_PER_TURN
+						: Math.max(1, (long)TICKS_PER_TURN * NORMAL_SPEED / Math.max(1, creature.speed()));
+				schedule(creature, entry.time + delay);
+			}
+		}
+	}
+	
+	/**
+	 * Puts a creature in the queue.
+	 * @param creature The creature
+	 * @param time The tick of its next action
+	 */
+	private void schedule(Creature creature, long time){
+		Entry entry = new Entry();
+		entry.time = time;
+		entry.sequence = sequence++;
+		entry.creature = creature;
+		entries.put(creature.id(), entry);
+		queue.add(entry);
+	}
+	
+	/**
+	 * Marks a creature's entry as cancelled, if it has one.
+	 * @param creature The creature
+	 */
+	private void cancel(Creature creature){
+		Entry entry = entries.remove(creature.id());
+		if (entry != null) {
+			entry.cancelled = true;
+		}
+	}
+	
+}
@@ -0,0 +1,87 @@
+package banditlike;
+
+import java.util.BitSet;
+
+/**
+ * The set of tiles one creature can see, within the square of its vision radius.
+ * A visibility stays valid until the creature moves, its radius changes or a tile of its level changes,
+ * so it is computed at most once per turn however often it is asked.
+ * @author Andrew Kim
+ */
+
+public class Visibility implements ShadowCaster.Visitor {
+
+	private int x;
+	private int y;
+	private int z;
+	private int radius;
+	private int side;
+	private long tileVersion;
+	private BitSet bits;
+
+	/**
+	 * Class constructor. The visibility starts out stale.
+	 */
+	public Visibility(){
+		this.radius = -1;
+		this.tileVersion = -1;
+		this.bits = new BitSet();
+	}
+
+	/**
+	 * Checks whether the visibility was computed from the given inputs.
+	 * @param x The x value of the viewer
+	 * @param y The y value of the viewer
+	 * @param z The z value of the viewer
+	 * @param radius The vision radius
+	 * @param tileVersion The current tile version of the level
+	 * @return Whether the visibility can be used as it is
+	 */
+	public boolean isCurrent(int x, int y, int z, int radius, long tileVersion){
+		return this.x == x && this.y == y && this.z == z
+				&& this.radius == radius && this.tileVersion == tileVersion;
+	}
+
+	/**
+	 * Recomputes the visible tiles.
+	 * @param world The world to look in
+	 * @param caster The caster to use
+	 * @param x The x value of the viewer
+	 * @param y The y value of the viewer
+	 * @param z The z value of the viewer
+	 * @param radius The vision radius
+	 */
+	public void compute(World world, ShadowCaster caster, int x, int y, int z, int radius){
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		this.radius = radius;
+		this.side = radius * 2 + 1;
+		this.tileVersion = world.tileVersion(z);
+
+		bits.clear();
+		caster.cast(world, x, y, z, radius, this);
+	}
+
+	/**
+	 * Marks a tile as visible. Called by the caster.
+	 */
+	@Override
+	public void reveal(int wx, int wy){
+		bits.set((wy - y + radius) * side + (wx - x + radius));
+	}
+
+	/**
+	 * @param wx The x value of the tile
+	 * @param wy The y value of the tile
+	 * @param wz The z value of the tile
+	 * @return Whether the tile was visible when the visibility was computed
+	 */
+	public boolean isVisible(int wx, int wy, int wz){
+		int ox = wx - x + radius;
+		int oy = wy - y + radius;
+		return wz == z && ox >= 0 && oy >= 0 && ox < side && oy < side
+				&& bits.get(oy * side + ox);
+	}
+
+}
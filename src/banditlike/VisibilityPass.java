@@ -0,0 +1,86 @@
+package banditlike;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Brings the line of sight of a batch of creatures up to date, splitting the batch across a fork/join pool.
+ * The pass only reads the world and only writes each creature's own Visibility, so the creatures can be handled in any order.
+ * Once it returns, the results are visible to every thread and are only read until the creatures move or a tile changes.
+ * @author Andrew Kim
+ */
+
+public class VisibilityPass extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Batches smaller than this are not split up.
+	 */
+	public static final int SPLIT_SIZE = 32;
+
+	/**
+	 * Each worker thread keeps its own caster, since a caster holds state while casting.
+	 */
+	private static final ThreadLocal<ShadowCaster> CASTERS = new ThreadLocal<ShadowCaster>(){
+		@Override
+		protected ShadowCaster initialValue(){
+			return new ShadowCaster();
+		}
+	};
+
+	private World world;
+	private List<Creature> viewers;
+	private int from;
+	private int to;
+
+	/**
+	 * Updates the line of sight of every given creature.
+	 * @param world The world the creatures are in
+	 * @param viewers The creatures to update
+	 * @param pool The pool to run on, or null to run on the calling thread. When called from a pool task, the batch is split across that pool instead
+	 */
+	public static void run(World world, List<Creature> viewers, ForkJoinPool pool){
+		VisibilityPass pass = new VisibilityPass(world, viewers, 0, viewers.size());
+		if (pool == null || viewers.size() <= SPLIT_SIZE){
+			pass.compute();
+		} else if (ForkJoinTask.inForkJoinPool()){
+			pass.invoke();
+		} else {
+			pool.invoke(pass);
+		}
+	}
+
+	/**
+	 * Class constructor.
+	 * @param world The world the creatures are in
+	 * @param viewers The creatures to update
+	 * @param from The first index to update
+	 * @param to One past the last index to update
+	 */
+	private VisibilityPass(World world, List<Creature> viewers, int from, int to){
+		this.world = world;
+		this.viewers = viewers;
+		this.from = from;
+		this.to = to;
+	}
+
+	@Override
+	protected void compute(){
+		if (to - from > SPLIT_SIZE){
+			int middle = (from + to) >>> 1;
+			invokeAll(new VisibilityPass(world, viewers, from, middle),
+					new VisibilityPass(world, viewers, middle, to));
+			return;
+		}
+
+		ShadowCaster caster = CASTERS.get();
+		for (int i = from; i < to; i++){
+			Creature viewer = viewers.get(i);
+			world.lineOfSight(viewer.z()).visibility(viewer, caster);
+		}
+	}
+
+}
@@ -1,8 +1,12 @@
 package banditlike;
 
 import java.awt.Color;
+import java.util.BitSet;
+import java.util.Random;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * The world class to store all tiles, creatures, and items.
@@ -11,12 +15,76 @@ import java.util.ArrayList;
 
 public class World {
 	
-	private Tile[][][] tiles;
-	private Item[][][] items;
+	/**
+	 * Receives every change of a tile in the world.
+	 */
+	public interface TileListener {
+		
+		/**
+		 * Called after a tile has changed.
+		 * @param x The x value
+		 * @param y The y value
+		 * @param z The z value
+		 * @param previous The tile before the change
+		 */
+		public void tileChanged(int x, int y, int z, Tile previous);
+		
+	}
+	
+	private TileStore tiles;
+	private long[] tileVersions;
+	private LineOfSight[] lineOfSight;
+	private List<TileListener> tileListeners;
+	private ForkJoinPool pool;
+	private boolean parallel;
+	private RandomStreams random;
+	private ItemLayer items;
 	private int width;
 	private int height;
 	private int depth;
-	private List<Creature> creatures;
+	
+	/**
+	 * The creatures of each level, simulated apart from each other.
+	 * While the levels are running their turns, moves between levels are queued instead of carried out.
+	 */
+	private LevelSimulation[] levels;
+	private boolean ticking;
+	private long turns;
+	
+	/**
+	 * The creature the active zone is centred on, and how far the zone reaches from it.
+	 * Creatures outside the zone, and every level but the focus's, are dormant and not updated.
+	 * With no focus, the whole world is active.
+	 */
+	private Creature focus;
+	private int activeRadius;
+	
+	/**
+	 * The creature standing on each cell, one array per level indexed by <code>y * width + x</code>.
+	 * Kept in sync with the creature lists so that lookups by location do not scan every creature.
+	 */
+	private Creature[][] occupants;
+	
+	/**
+	 * The ground cells of each level with no creature on them, and the ground cells with no item on them.
+	 * Random placement picks from these instead of retrying random coordinates.
+	 */
+	private CellIndex[] freeForCreatures;
+	private CellIndex[] freeForItems;
+	
+	/**
+	 * How far addAtEmptySpace looks for an empty space. Its scratch buffers are kept per level.
+	 * Cells are numbered within the (2 * SPACE_RADIUS + 1) square around the starting point.
+	 */
+	private static final int SPACE_RADIUS = 8;
+	private static final int[] NEIGHBOR_X = { -1, 0, 1, 1, 1, 0, -1, -1 };
+	private static final int[] NEIGHBOR_Y = { -1, -1, -1, 0, 1, 1, 1, 0 };
+	
+	/**
+	 * The cells of each level whose glyph or color may have changed, indexed by <code>y * width + x</code>.
+	 * Set by every move, item and tile change, and cleared by whoever draws the level.
+	 */
+	private BitSet[] changed;
 	
 	/**
 	 * @return width
@@ -34,22 +102,200 @@ public class World {
 	public int depth() { return depth; }
 	
 	/**
-	 * @return creatures
+	 * @return The seed the world's random streams are derived from
+	 */
+	public long seed() { return random.seed(); }
+	
+	/**
+	 * @param subsystem The subsystem drawing the numbers
+	 * @param z The level the numbers are for
+	 * @return The random stream of the subsystem on the level
+	 */
+	public Random random(RandomStreams.Subsystem subsystem, int z) { return random.stream(subsystem, z); }
+	
+	/**
+	 * Returns a counter that changes whenever a tile of the level changes.
+	 * @param z The level
+	 * @return The tile version of the level
+	 */
+	public long tileVersion(int z) { return tileVersions[z]; }
+	
+	/**
+	 * Registers a listener to be told about every tile change.
+	 * @param listener The listener
+	 */
+	public void addTileListener(TileListener listener) { tileListeners.add(listener); }
+	
+	/**
+	 * @param z The level
+	 * @return The line of sight service of the level
+	 */
+	public LineOfSight lineOfSight(int z) { return lineOfSight[z]; }
+	
+	/**
+	 * Returns the cells of a level that may look different since the bits were last cleared.
+	 * The caller owns clearing the bits once it has drawn them.
+	 * @param z The level
+	 * @return The changed cells of the level, indexed by <code>y * width + x</code>
 	 */
-	public List<Creature> creatures() { return creatures; }
+	public BitSet changedCells(int z) { return changed[z]; }
+	
+	/**
+	 * @return A new list of every creature in the world, level by level
+	 */
+	public List<Creature> creatures(){
+		List<Creature> all = new ArrayList<Creature>();
+		for (LevelSimulation level : levels){
+			all.addAll(level.creatures());
+		}
+		return all;
+	}
+	
+	/**
+	 * @return The number of turns the world has been updated
+	 */
+	public long turns() { return turns; }
+	
+	/**
+	 * Limits the simulation to the creatures near a focus, usually the player.
+	 * Only the focus's level runs its turns, and on it only the creatures within the radius, measured along
+	 * either axis. Creatures coming into the zone wake up and catch up on the turns they missed.
+	 * @param focus The creature to centre the zone on, or null to simulate the whole world
+	 * @param radius How far the zone reaches from the focus
+	 */
+	public void setActiveZone(Creature focus, int radius){
+		this.focus = focus;
+		this.activeRadius = radius;
+	}
+	
+	/**
+	 * @param creature The creature
+	 * @return Whether the creature is in the active zone
+	 */
+	public boolean isInActiveZone(Creature creature){
+		return focus == null
+				|| (creature.z() == focus.z()
+					&& Math.abs(creature.x() - focus.x()) <= activeRadius
+					&& Math.abs(creature.y() - focus.y()) <= activeRadius);
+	}
+	
+	/**
+	 * Stops updating a creature until it is next in the active zone.
+	 * @param creature The creature
+	 * @param since The turn the creature was last updated
+	 */
+	public void makeDormant(Creature creature, long since){
+		creature.setDormantSince(since);
+		scheduler(creature.z()).sleep(creature, TurnScheduler.FOREVER);
+	}
+	
+	/**
+	 * Lets a dormant creature catch up on the turns it missed, and updates it again from this turn.
+	 * @param creature The creature
+	 */
+	public void wake(Creature creature){
+		long elapsed = turns - creature.dormantSince();
+		creature.setDormantSince(-1);
+		creature.catchUp(elapsed);
+		scheduler(creature.z()).wake(creature);
+	}
+	
+	/**
+	 * @param z The level
+	 * @return The simulation of the level
+	 */
+	public LevelSimulation level(int z) { return levels[z]; }
+	
+	/**
+	 * @return Whether creatures plan their actions in parallel before carrying them out
+	 */
+	public boolean isParallel() { return parallel; }
+	
+	/**
+	 * Switches between updating creatures one after the other, and letting every creature due in a turn plan an
+	 * intent in parallel before the intents are carried out in turn order.
+	 * Both are reproducible for a given seed, but they draw different random numbers, so they give different games.
+	 * @param parallel Whether to plan in parallel
+	 */
+	public void setParallel(boolean parallel) { this.parallel = parallel; }
+	
+	/**
+	 * Sets the pool the levels and the passes are split across.
+	 * Without one, a pool with a thread per core is made on the first update.
+	 * @param pool The pool
+	 */
+	public void setPool(ForkJoinPool pool) { this.pool = pool; }
+	
+	/**
+	 * @param creature The creature
+	 * @param turn The turn
+	 * @return The random stream of the creature for the turn, independent of every other stream
+	 */
+	public Random creatureRandom(Creature creature, long turn) { return random.creatureStream(creature.id(), turn); }
+	
+	/**
+	 * @param z The level
+	 * @return The scheduler deciding which creatures of the level act in each turn
+	 */
+	public TurnScheduler scheduler(int z) { return levels[z].scheduler(); }
 	
 	/**
 	 * Class constructor.
 	 * Defines width, height, and depth, and any items or creatures in the world.
-	 * @param tiles Tiles to fill in the world
+	 * @param tiles Tiles to fill in the world, indexed by [x][y][z]
 	 */
 	public World(Tile[][][] tiles){
+		this(new TileStore(tiles));
+	}
+	
+	/**
+	 * Class constructor.
+	 * The world uses the given store directly, without copying it, and draws random numbers from a random seed.
+	 * @param tiles Tiles to fill in the world
+	 */
+	public World(TileStore tiles){
+		this(tiles, new RandomStreams(new Random().nextLong(), tiles.depth()));
+	}
+	
+	/**
+	 * Class constructor.
+	 * The world uses the given store directly, without copying it.
+	 * @param tiles Tiles to fill in the world
+	 * @param random The random streams to draw from
+	 */
+	public World(TileStore tiles, RandomStreams random){
 		this.tiles = tiles;
-		this.width = tiles.length;
-		this.height = tiles[0].length;
-		this.depth = tiles[0][0].length;
-		this.items = new Item[width][height][depth];
-		this.creatures = new ArrayList<Creature>();
+		this.random = random;
+		this.width = tiles.width();
+		this.height = tiles.height();
+		this.depth = tiles.depth();
+		this.tileVersions = new long[depth];
+		this.tileListeners = new ArrayList<TileListener>();
+		this.lineOfSight = new LineOfSight[depth];
+		for (int z = 0; z < depth; z++){
+			lineOfSight[z] = new LineOfSight(this, z);
+		}
+		this.items = new ItemLayer(width, height, depth);
+		this.occupants = new Creature[depth][width * height];
+		this.freeForCreatures = new CellIndex[depth];
+		this.freeForItems = new CellIndex[depth];
+		this.changed = new BitSet[depth];
+		this.levels = new LevelSimulation[depth];
+		
+		for (int z = 0; z < depth; z++){
+			freeForCreatures[z] = new CellIndex(width * height);
+			freeForItems[z] = new CellIndex(width * height);
+			changed[z] = new BitSet(width * height);
+			levels[z] = new LevelSimulation(this, z, (SPACE_RADIUS * 2 + 1) * (SPACE_RADIUS * 2 + 1));
+			
+			byte[] level = tiles.level(z);
+			for (int i = 0; i < level.length; i++){
+				if (TileStore.tileOf(level[i]).isGround()){
+					freeForCreatures[z].add(i);
+					freeForItems[z].add(i);
+				}
+			}
+		}
 	}
 	
 	/**
@@ -59,13 +305,7 @@ public class World {
 	 * @return The tile in the given coordinates
 	 */
 	public Tile tile(int x, int y, int z){
-		if (x < 0 || x >= width 
-				|| y < 0 || y >= height
-				|| z < 0 || z >= depth){
-			return Tile.BOUNDS;
-		} else {
-			return tiles[x][y][z];
-		}
+		return tiles.tile(x, y, z);
 	}
 	
 	/**
@@ -75,7 +315,12 @@ public class World {
 	 * @return The item in the given coordinates, if any
 	 */
 	public Item item(int x, int y, int z){
-		return items[x][y][z];
+		if (x < 0 || x >= width
+				|| y < 0 || y >= height
+				|| z < 0 || z >= depth){
+			return null;
+		}
+		return items.item(x, y, z);
 	}
 	
 	/**
@@ -115,40 +360,43 @@ public class World {
 	//CREATURES, ITEMS, AND CREATURE ACTIONS------------------------------------------------------------------------
 	
 	/**
-	 * Adds a creature at an empty location.
+	 * Adds a creature at a random empty location, gives it an id and schedules it to act from the next turn.
 	 * @param creature The creature to add
 	 * @param z The given depth
+	 * @return false if the level has no empty ground left, in which case the creature is not added
 	 */
-	public void addAtEmptyLocation(Creature creature, int z){
-		int x;
-		int y;
+	public boolean addAtEmptyLocation(Creature creature, int z){
+		CellIndex free = freeForCreatures[z];
+		if (free.size() == 0) {
+			return false;
+		}
 		
-		do {
-			x = (int)(Math.random() * width);
-			y = (int)(Math.random() * height);
-		} while(!tile(x,y,z).isGround() || creature(x,y,z) != null);
+		int cell = free.get(random(RandomStreams.Subsystem.PLACEMENT, z).nextInt(free.size()));
 		
-		creature.x = x;
-		creature.y = y;
-		creature.z = z;
-		creatures.add(creature);
+		creature.setLocation(cell % width, cell / width, z);
+		creature.setId(levels[z].newId());
+		levels[z].add(creature);
+		occupants[z][cell] = creature;
+		free.remove(cell);
+		changed[z].set(cell);
+		return true;
 	}
 	
 	/**
-	 * Adds an item at an empty location
+	 * Adds an item at a random empty location.
 	 * @param item The item to add
 	 * @param depth The given depth
+	 * @return false if the level has no empty ground left, in which case the item is not added
 	 */
-	public void addAtEmptyLocation(Item item, int depth){
-		int x;
-		int y;
+	public boolean addAtEmptyLocation(Item item, int depth){
+		CellIndex free = freeForItems[depth];
+		if (free.size() == 0) {
+			return false;
+		}
 		
-		do {
-	        x = (int)(Math.random() * width);
-	        y = (int)(Math.random() * height);
-	    } while (!tile(x,y,depth).isGround() || item(x,y,depth) != null);
-	    
-	    items[x][y][depth] = item;
+		int cell = free.get(random(RandomStreams.Subsystem.PLACEMENT, depth).nextInt(free.size()));
+		putItem(cell % width, cell / width, depth, item);
+		return true;
 	}
 	
 	/**
@@ -158,12 +406,42 @@ public class World {
 	 * @return The creature at the given location, if any
 	 */
 	public Creature creature(int x, int y, int z){
-		for (Creature c : creatures){
-			if(c.x == x && c.y == y && c.z == z){
-				return c;
-			}
+		if (x < 0 || x >= width
+				|| y < 0 || y >= height
+				|| z < 0 || z >= depth){
+			return null;
+		}
+		return occupants[z][y * width + x];
+	}
+	
+	/**
+	 * Moves a creature to the given coordinates.
+	 * All creature movement should go through here so the occupancy grid stays correct.
+	 * A move to another level made while the levels are running their turns is carried out at the end of the turn,
+	 * if the cell is still free then.
+	 * @param creature The creature to move
+	 * @param x The new x value
+	 * @param y The new y value
+	 * @param z The new z value
+	 */
+	public void move(Creature creature, int x, int y, int z){
+		int from = creature.z();
+		if (ticking && z != from) {
+			levels[from].handoff(new LevelSimulation.Handoff(creature, x, y, z));
+			return;
+		}
+		
+		vacate(creature);
+		
+		creature.setLocation(x, y, z);
+		occupants[z][y * width + x] = creature;
+		freeForCreatures[z].remove(y * width + x);
+		changed[z].set(y * width + x);
+		
+		if (z != from) {
+			levels[from].remove(creature);
+			levels[z].add(creature);
 		}
-		return null;
 	}
 	
 	/**
@@ -171,7 +449,22 @@ public class World {
 	 * @param other The creature to remove
 	 */
 	public void remove(Creature other){
-		creatures.remove(other);
+		levels[other.z()].remove(other);
+		vacate(other);
+	}
+	
+	/**
+	 * Clears the cell a creature is standing on, if the creature is the one recorded there.
+	 * @param creature The creature leaving its cell
+	 */
+	private void vacate(Creature creature){
+		Creature[] level = occupants[creature.z()];
+		int index = creature.y() * width + creature.x();
+		if (level[index] == creature) {
+			level[index] = null;
+			freeForCreatures[creature.z()].add(index);
+			changed[creature.z()].set(index);
+		}
 	}
 	
 	/**
@@ -181,46 +474,84 @@ public class World {
 	 * @param z The z value
 	 */
 	public void remove(int x, int y, int z){
-		items[x][y][z] = null;
+		if (items.has(x, y, z)) {
+			items.remove(x, y, z);
+			freeForItems[z].add(y * width + x);
+			changed[z].set(y * width + x);
+		}
 	}
 	
 	/**
-	 * Adds an item to the nearest space of the given coordinates
-	 * If no space is present, the item may disappear. This may or may not be treated as a bug.
+	 * Places an item on a cell and takes the cell out of the free item cells.
+	 * @param x The x value
+	 * @param y The y value
+	 * @param z The z value
+	 * @param item The item to place
+	 */
+	private void putItem(int x, int y, int z, Item item){
+		items.put(x, y, z, item);
+		freeForItems[z].remove(y * width + x);
+		changed[z].set(y * width + x);
+	}
+	
+	/**
+	 * Adds an item to the nearest space of the given coordinates.
+	 * The search walks outwards over connected ground, at most SPACE_RADIUS tiles away in each direction.
 	 * @param item The item to add
 	 * @param x The x value
 	 * @param y The y value
 	 * @param z The z value
+	 * @return false if there was no empty space close enough, in which case the item is not added
 	 */
-	public void addAtEmptySpace(Item item, int x, int y, int z){
+	public boolean addAtEmptySpace(Item item, int x, int y, int z){
 		if (item == null) {
-			return;
+			return false;
 		}
 		
-		List<Point> points = new ArrayList<Point>();
-		List<Point> checked = new ArrayList<Point>();
+		BitSet spaceVisited = levels[z].spaceVisited();
+		int[] spaceQueue = levels[z].spaceQueue();
+		int side = SPACE_RADIUS * 2 + 1;
+		int head = 0;
+		int tail = 0;
+		int first = random(RandomStreams.Subsystem.PLACEMENT, z).nextInt(8);
 		
-		points.add(new Point(x,y,z));
+		spaceVisited.clear();
+		spaceVisited.set(SPACE_RADIUS * side + SPACE_RADIUS);
+		spaceQueue[tail++] = SPACE_RADIUS * side + SPACE_RADIUS;
 		
-		while (!points.isEmpty()) {
-			Point p = points.remove(0);
-			checked.add(p);
+		while (head < tail) {
+			int local = spaceQueue[head++];
+			int px = x + local % side - SPACE_RADIUS;
+			int py = y + local / side - SPACE_RADIUS;
 			
-			if (!tile(p.x, p.y, p.z).isGround())
+			if (!tile(px, py, z).isGround())
 				continue;
 			
-			if (items[p.x][p.y][p.z] == null) {
-				items[p.x][p.y][p.z] = item;
-				Creature c = this.creature(p.x, p.y, p.z);
-	            if (c != null)
-	            	c.notify("A %s lands between your feet.", item.name());
-	            return;
-	        } else {
-	        	List<Point> neighbors = p.neighbors8();
-	            neighbors.removeAll(checked);
-	            points.addAll(neighbors);
+			if (!items.has(px, py, z)) {
+				putItem(px, py, z, item);
+				Creature c = this.creature(px, py, z);
+				if (c != null)
+					c.notify("A %s lands between your feet.", item.name());
+				return true;
+			}
+			
+			for (int i = 0; i < 8; i++) {
+				int direction = (first + i) & 7;
+				int nx = px + NEIGHBOR_X[direction];
+				int ny = py + NEIGHBOR_Y[direction];
+				
+				if (Math.abs(nx - x) > SPACE_RADIUS || Math.abs(ny - y) > SPACE_RADIUS)
+					continue;
+				
+				int next = (ny - y + SPACE_RADIUS) * side + (nx - x + SPACE_RADIUS);
+				if (spaceVisited.get(next))
+					continue;
+				
+				spaceVisited.set(next);
+				spaceQueue[tail++] = next;
 			}
 		}
+		return false;
 	}
 	
 	/**
@@ -230,18 +561,102 @@ public class World {
 	 * @param z The z value
 	 */
 	public void dig(int x, int y, int z){
-		if(tile(x,y,z).isDiggable()){
-			tiles[x][y][z] = Tile.FLOOR;
+		Tile previous = tile(x,y,z);
+		if(previous.isDiggable()){
+			tiles.set(x, y, z, Tile.FLOOR);
+			tileVersions[z]++;
+			freeForCreatures[z].add(y * width + x);
+			freeForItems[z].add(y * width + x);
+			changed[z].set(y * width + x);
+			for (TileListener listener : tileListeners){
+				listener.tileChanged(x, y, z, previous);
+			}
 		}
 	}
 	
 	/**
-	 * Updates the world.
+	 * Updates the world by one turn.
+	 * Every level runs its turn on its own, all at the same time; see LevelSimulation.
+	 * With an active zone, only the focus's level runs, after waking the dormant creatures in the zone.
+	 * Moves between levels made during the turn are carried out afterwards, level by level in the order they were made,
+	 * so the result does not depend on which level finished first.
 	 */
 	public void update(){
-		List<Creature> toUpdate = new ArrayList<Creature>(creatures);
-		for(Creature creature : toUpdate){
-			creature.update();
+		if (pool == null) {
+			pool = new ForkJoinPool();
+		}
+		
+		if (focus != null) {
+			for (LevelSimulation level : levels){
+				if (level != levels[focus.z()]) {
+					level.pause(turns);
+				}
+			}
+			levels[focus.z()].resume(focus);
+			wakeActiveZone();
+		}
+		turns++;
+		
+		ticking = true;
+		try {
+			if (focus != null) {
+				levels[focus.z()].tick(pool);
+			} else if (depth == 1) {
+				levels[0].tick(pool);
+			} else {
+				pool.invoke(new RecursiveAction(){
+					private static final long serialVersionUID = 1L;
+					
+					@Override
+					protected void compute(){
+						List<RecursiveAction> tasks = new ArrayList<RecursiveAction>();
+						for (final LevelSimulation level : levels){
+							tasks.add(new RecursiveAction(){
+								private static final long serialVersionUID = 1L;
+								
+								@Override
+								protected void compute(){
+									level.tick(pool);
+								}
+							});
+						}
+						invokeAll(tasks);
+					}
+				});
+			}
+		} finally {
+			ticking = false;
+		}
+		
+		for (LevelSimulation level : levels){
+			for (LevelSimulation.Handoff handoff : level.takeHandoffs()){
+				Creature creature = handoff.creature();
+				if (creature(creature.x(), creature.y(), creature.z()) == creature
+						&& creature.canEnter(handoff.x(), handoff.y(), handoff.z())) {
+					move(creature, handoff.x(), handoff.y(), handoff.z());
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Wakes every dormant creature in the active zone.
+	 * Only the cells of the zone are looked at, so the cost does not grow with the population of the level.
+	 */
+	private void wakeActiveZone(){
+		int z = focus.z();
+		int left = Math.max(0, focus.x() - activeRadius);
+		int right = Math.min(width - 1, focus.x() + activeRadius);
+		int top = Math.max(0, focus.y() - activeRadius);
+		int bottom = Math.min(height - 1, focus.y() + activeRadius);
+		
+		for (int y = top; y <= bottom; y++){
+			for (int x = left; x <= right; x++){
+				Creature creature = occupants[z][y * width + x];
+				if (creature != null && creature.isDormant()) {
+					wake(creature);
+				}
+			}
 		}
 	}
 
@@ -1,12 +1,16 @@
 package banditlike;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Logic for generating a new world.
  * Although hard to deal with, the generator is only run once and therefore requires little maintenance.
+ * Every level is randomized, smoothed and split into regions on its own, so those steps can run on all levels at once;
+ * the stairs between levels are added afterwards.
  * @author Andrew Kim
  */
 
@@ -15,167 +19,181 @@ public class WorldBuilder {
 	private int width;
 	private int height;
 	private int depth;
-	private Tile[][][] tiles;
-	private int[][][] regions;
-	private int nextRegion;
+	private TileStore tiles;
+	private int[][] regions;
+	private RandomStreams random;
+	private boolean parallel;
 	
 	/** 
 	 * Class constructor.
+	 * The world is generated from a random seed.
 	 * @param width Width of the world
 	 * @param height Height of the world
 	 * @param depth Depth of the world
 	 */
 	public WorldBuilder(int width, int height, int depth){
+		this(width, height, depth, new Random().nextLong());
+	}
+	
+	/** 
+	 * Class constructor.
+	 * The same seed always generates the same world, whether it is built serially or in parallel.
+	 * @param width Width of the world
+	 * @param height Height of the world
+	 * @param depth Depth of the world
+	 * @param seed The seed to generate the world from
+	 */
+	public WorldBuilder(int width, int height, int depth, long seed){
 		this.width = width;
 		this.height = height;
 		this.depth = depth;
-		this.tiles = new Tile[width][height][depth];
-		this.regions = new int[width][height][depth];
-		this.nextRegion = 1;
+		this.tiles = new TileStore(width, height, depth, Tile.UNKNOWN);
+		this.regions = new int[depth][width * height];
+		this.random = new RandomStreams(seed, depth);
+	}
+	
+	/**
+	 * Generate the levels on all available cores instead of one after another.
+	 * @return This
+	 */
+	public WorldBuilder inParallel(){
+		this.parallel = true;
+		return this;
 	}
 	
 	/**
 	 * Create a new world with the given generated tiles.
+	 * The world takes over the builder's tile store without copying it, and keeps drawing from the builder's random streams.
 	 * @return New world
 	 */
 	public World build(){
-		return new World(tiles);
+		return new World(tiles, random);
 	}
 	
 	/**
-	 * Randomize every tile so it can become a floor or wall at a 50% chance respectively.
-	 * @return
+	 * Generates caves for the map
+	 * @return This, with tiles updated
 	 */
-	private WorldBuilder randomizeTiles(){
-		for(int x = 0; x < width; x++){
-			for(int y = 0; y < height; y++){
-				for(int z = 0; z < depth; z++){
-					tiles[x][y][z] = Math.random() < 0.5 ? Tile.FLOOR : Tile.WALL;
-				} 
-			}
-		}
-		return this;
+	public WorldBuilder makeCaves(){
+		return makeLevels().connectRegions().addExitStairs();
 	}
 	
 	/**
-	 * Smoothens the map.
-	 * The tile becomes a floor or wall tile depending on what the majority of the nearby tiles are.
-	 * @param times The number of times to smooth the map
+	 * Randomizes, smooths and creates the regions of every level.
+	 * In parallel mode each level is a separate task on a fork/join pool.
 	 * @return This, with tiles updated
 	 */
-	private WorldBuilder smooth(int times){
-		Tile[][][] tempTiles = new Tile[width][height][depth];
-		for(int time = 0 ; time < times; time++){
-			for(int x = 0; x < width; x++){
-				for(int y = 0; y < height; y++){
-					for(int z = 0; z < depth; z++){
-						int floors = 0;
-						int rocks = 0;
-						
-						for(int ox = -1; ox <= 1; ox++){
-							for(int oy = -1; oy <= 1; oy++){
-								if(x + ox < 0 || x + ox >= width 
-										|| y + oy < 0 || y + oy >= height){
-									continue;
-								}
-								if(tiles[x+ox][y+oy][z] == Tile.FLOOR){
-									floors++;
-								} else {
-									rocks++;
-								}
-							}
-						}
-						tempTiles[x][y][z] = floors >= rocks ? Tile.FLOOR : Tile.WALL;
-					}
+	private WorldBuilder makeLevels(){
+		if (!parallel || depth < 2){
+			for (int z = 0; z < depth; z++){
+				makeLevel(z);
+			}
+			return this;
+		}
+		
+		List<RecursiveAction> tasks = new ArrayList<RecursiveAction>();
+		for (int z = 0; z < depth; z++){
+			final int level = z;
+			tasks.add(new RecursiveAction(){
+				private static final long serialVersionUID = 1L;
+				
+				@Override
+				protected void compute(){
+					makeLevel(level);
 				}
+			});
+		}
+		
+		ForkJoinPool pool = new ForkJoinPool();
+		try {
+			for (RecursiveAction task : tasks){
+				pool.execute(task);
 			}
-			tiles = tempTiles;
+			for (RecursiveAction task : tasks){
+				task.join();
+			}
+		} finally {
+			pool.shutdown();
 		}
 		return this;
 	}
 	
 	/**
-	 * Generates caves for the map
-	 * @return This, with tiles updated
+	 * Generates the caves of a single level. Only touches that level's tiles and regions.
+	 * @param z The level
 	 */
-	public WorldBuilder makeCaves(){
-		return randomizeTiles().smooth(8).createRegions().connectRegions().addExitStairs();
+	private void makeLevel(int z){
+		randomizeTiles(z);
+		smooth(z, 8);
+		createRegions(z, new RegionLabeller(width, height));
+	}
+	
+	/**
+	 * Randomize every tile of a level so it can become a floor or wall at a 50% chance respectively.
+	 * Each level draws from its own terrain stream.
+	 * @param z The level
+	 */
+	private void randomizeTiles(int z){
+		byte floor = (byte)Tile.FLOOR.ordinal();
+		byte wall = (byte)Tile.WALL.ordinal();
+		Random levelRandom = random.stream(RandomStreams.Subsystem.TERRAIN, z);
+		
+		byte[] level = tiles.level(z);
+		for(int i = 0; i < level.length; i++){
+			level[i] = levelRandom.nextDouble() < 0.5 ? floor : wall;
+		}
+	}
+	
+	/**
+	 * Smoothens a level.
+	 * The tile becomes a floor or wall tile depending on what the majority of the nearby tiles are.
+	 * @param z The level
+	 * @param times The number of times to smooth the level
+	 * @see CaveSmoother
+	 */
+	private void smooth(int z, int times){
+		new CaveSmoother(width, height).smooth(tiles.level(z), times);
 	}
 	
 	//CAVES AND REGIONS ----------------------------------------------------------------------------------
 	
 	/**
-	 * Creates a region map.
+	 * Creates the region map of a level.
 	 * Each location has a number that identifies what region / open space it belongs to.
-	 * If the region is too small it gets removed.
-	 * @return This, with updated tiles.
+	 * Region numbers start at 1 on every level. If the region is too small it gets removed.
+	 * @param z The level
+	 * @param labeller The labeller to use, which must not be shared with another level being built at the same time
 	 */
-	private WorldBuilder createRegions(){
-		regions = new int[width][height][depth];
+	private void createRegions(int z, RegionLabeller labeller){
+		byte wall = (byte)Tile.WALL.ordinal();
+		int count = labeller.label(tiles.level(z), wall, regions[z]);
 		
-		for (int z = 0; z < depth; z++){
-			for (int x = 0; x < width; x++){
-				for (int y = 0; y < height; y++){
-					if (tiles[x][y][z] != Tile.WALL && regions[x][y][z] == 0){
-						int size = fillRegion(nextRegion++, x, y, z);
-						
-						if (size < 25)
-							removeRegion(nextRegion - 1, z);
-					}
-				}
-			}
+		for (int region = 1; region <= count; region++){
+			if (labeller.size(region) < 25)
+				removeRegion(labeller, region, z);
 		}
-		return this;
 	}
 	
 	/**
 	 * Zeroes the region and fills it so it is no longer a cave.
+	 * Only the region's bounding box is scanned.
+	 * @param labeller The labeller that found the region
 	 * @param region Region to remove
 	 * @param z Depth
 	 */
-	private void removeRegion(int region, int z){
-		for (int x = 0; x < width; x++){
-			for (int y = 0; y < height; y++){
-				if (regions[x][y][z] == region){
-					regions[x][y][z] = 0;
-					tiles[x][y][z] = Tile.WALL;
-				}
-			}
-		}
-	}
-	
-	/**
-	 * Fills the region with a given number.
-	 * Any tile it is connected to gets the same region number.
-	 * @param region Region number
-	 * @param x Initial x coordinate
-	 * @param y Initial y coordinate
-	 * @param z Initial z coordinate
-	 * @return The size of the region
-	 */
-	private int fillRegion(int region, int x, int y, int z) {
-		int size = 1;
-		ArrayList<Point> open = new ArrayList<Point>();
-		open.add(new Point(x,y,z));
-		regions[x][y][z] = region;
+	private void removeRegion(RegionLabeller labeller, int region, int z){
+		int[] level = regions[z];
+		byte[] levelTiles = tiles.level(z);
+		byte wall = (byte)Tile.WALL.ordinal();
 		
-		while (!open.isEmpty()){
-			Point p = open.remove(0);
-
-			for (Point neighbor : p.neighbors8()){
-				if (neighbor.x < 0 || neighbor.y < 0 || neighbor.x >= width || neighbor.y >= height)
-					continue;
-				
-				if (regions[neighbor.x][neighbor.y][neighbor.z] > 0
-						|| tiles[neighbor.x][neighbor.y][neighbor.z] == Tile.WALL)
-					continue;
-
-				size++;
-				regions[neighbor.x][neighbor.y][neighbor.z] = region;
-				open.add(neighbor);
+		for (int y = labeller.minY(region); y <= labeller.maxY(region); y++){
+			for (int x = labeller.minX(region); x <= labeller.maxX(region); x++){
+				if (level[y * width + x] == region){
+					level[y * width + x] = 0;
+					levelTiles[y * width + x] = wall;
+				}
 			}
 		}
-		return size;
 	}
 	
 	/**
@@ -192,83 +210,83 @@ public class WorldBuilder {
 	/**
 	 * Connects two adjacent regions.
 	 * Checks each region above another region; if they are not connected, a stair is made.
+	 * One pass over the level groups every overlapping floor cell by its (upper, lower) region pair,
+	 * then the stairs for each pair are placed from its group.
 	 * @param z The depth to check
 	 */
 	private void connectRegionsDown(int z){
-		List<String> connected = new ArrayList<String>();
+		byte floor = (byte)Tile.FLOOR.ordinal();
+		byte[] upper = tiles.level(z);
+		byte[] lower = tiles.level(z+1);
 		
-		for (int x = 0; x < width; x++){
-			for (int y = 0; y < height; y++){
-				String region = regions[x][y][z] + "," + regions[x][y][z+1];
-				if (tiles[x][y][z] == Tile.FLOOR
-						&& tiles[x][y][z+1] == Tile.FLOOR
-						&& !connected.contains(region)){
-					connected.add(region);
-					connectRegionsDown(z, regions[x][y][z], regions[x][y][z+1]);
-				}
+		LongMap<IntList> overlaps = new LongMap<IntList>(64);
+		List<IntList> pairs = new ArrayList<IntList>();
+		
+		for (int i = 0; i < upper.length; i++){
+			if (upper[i] != floor || lower[i] != floor)
+				continue;
+			
+			long pair = ((long)regions[z][i] << 32) | regions[z+1][i];
+			IntList candidates = overlaps.get(pair);
+			if (candidates == null){
+				candidates = new IntList(16);
+				overlaps.put(pair, candidates);
+				pairs.add(candidates);
 			}
+			candidates.add(i);
+		}
+		
+		for (IntList candidates : pairs){
+			connectRegionsDown(z, candidates);
 		}
 	}
 	
 	/**
-	 * Gets a list of all overlapping areas.
+	 * Places stairs between two regions.
 	 * Based on how much area overlaps, stairs that goes up and down are made.
 	 * @param z Depth
-	 * @param r1 First region
-	 * @param r2 Second region
+	 * @param candidates The overlapping cells of the two regions
 	 */
-	private void connectRegionsDown(int z, int r1, int r2){
-		List<Point> candidates = findRegionOverlaps(z, r1, r2);
-		
+	private void connectRegionsDown(int z, IntList candidates){
+		int remaining = candidates.size();
 		int stairs = 0;
 		do{
-			Point p = candidates.remove(0);
-			tiles[p.x][p.y][z] = Tile.STAIRS_DOWN;
-			tiles[p.x][p.y][z+1] = Tile.STAIRS_UP;
+			int pick = random.stream(RandomStreams.Subsystem.STAIRS, z).nextInt(remaining);
+			int cell = candidates.get(pick);
+			candidates.set(pick, candidates.get(remaining - 1));
+			remaining--;
+			
+			tiles.level(z)[cell] = (byte)Tile.STAIRS_DOWN.ordinal();
+			tiles.level(z+1)[cell] = (byte)Tile.STAIRS_UP.ordinal();
 			stairs++;
 		}
-		while (candidates.size() / stairs > 250);
-	}
-
-	/**
-	 * Find which areas of the two regions overlap.
-	 * @param z Depth
-	 * @param r1 First region
-	 * @param r2 Second region
-	 * @return List of overlapping points
-	 */
-	public List<Point> findRegionOverlaps(int z, int r1, int r2) {
-		ArrayList<Point> candidates = new ArrayList<Point>();
-		
-		for (int x = 0; x < width; x++){
-			for (int y = 0; y < height; y++){
-				if (tiles[x][y][z] == Tile.FLOOR
-						&& tiles[x][y][z+1] == Tile.FLOOR
-						&& regions[x][y][z] == r1 
-						&& regions[x][y][z+1] == r2){
-					candidates.add(new Point(x,y,z));
-				}
-			}
-		}
-		
-		Collections.shuffle(candidates);
-		return candidates;
+		while (remaining / stairs > 250);
 	}
 	
 	/**
 	 * Add exit stairs to the topmost layer of the caves.
+	 * The stairs replace a floor tile picked uniformly among all floor tiles of the layer.
 	 * @return This, with updated tiles.
 	 */
 	private WorldBuilder addExitStairs() {
-		int x= -1;
-		int y = -1;
+		byte floor = (byte)Tile.FLOOR.ordinal();
+		byte[] level = tiles.level(0);
 		
-		do {
-			x = (int)(Math.random() * width);
-			y = (int)(Math.random() * height);
-		} while (tiles[x][y][0] != Tile.FLOOR);
+		int floors = 0;
+		for (int i = 0; i < level.length; i++){
+			if (level[i] == floor)
+				floors++;
+		}
+		if (floors == 0)
+			return this;
 		
-		tiles[x][y][0] = Tile.STAIRS_UP;
+		int pick = random.stream(RandomStreams.Subsystem.STAIRS, 0).nextInt(floors);
+		for (int i = 0; i < level.length; i++){
+			if (level[i] == floor && pick-- == 0){
+				level[i] = (byte)Tile.STAIRS_UP.ordinal();
+				break;
+			}
+		}
 		return this;
 	}
 
@@ -2,7 +2,7 @@ package banditlike.screens;
 
 import java.awt.event.KeyEvent;
 import java.util.ArrayList;
-import asciiPanel.AsciiPanel;
+import banditlike.Terminal;
 import banditlike.Creature;
 import banditlike.Item;
 
@@ -56,7 +56,7 @@ public abstract class InventoryBasedScreen implements Screen {
 	 * Displays the items in the inventory, and suggests what item to select.
 	 */
 	@Override
-	public void displayOutput(AsciiPanel terminal) {
+	public void displayOutput(Terminal terminal) {
 		ArrayList<String> lines = getList();
 		
 		int y = 40 - lines.size();
@@ -72,8 +72,6 @@ public abstract class InventoryBasedScreen implements Screen {
 		terminal.clear(' ', 0, 40, 80, 1);
 		terminal.write("What would you like to " + getVerb() + "? (Press the corresponding character, " +
 				"or press esc to close)", 4, 40);
-		
-		terminal.repaint();
 	}
 	
 	/**
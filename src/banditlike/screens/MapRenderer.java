@@ -0,0 +1,266 @@
+package banditlike.screens;
+
+import java.awt.Color;
+import java.util.BitSet;
+import banditlike.World;
+import banditlike.Terminal;
+
+/**
+ * Draws the visible part of one level of the world into a rectangle of the terminal, starting at its top left corner.
+ * The renderer remembers what it last wrote to each cell and only writes the cells that differ, so the terminal must not
+ * be cleared between frames. A cell is only looked up again when the world marks it as changed, when it is invalidated,
+ * or when scrolling brings it into view; everything else is shifted from the last frame.
+ * @author Andrew Kim
+ */
+
+public class MapRenderer {
+
+	/**
+	 * Decides what a cell of the world looks like.
+	 */
+	public interface Source {
+
+		/**
+		 * @param x The x value
+		 * @param y The y value
+		 * @param z The z value
+		 * @return The glyph to show for the cell
+		 */
+		public char glyph(int x, int y, int z);
+
+		/**
+		 * @param x The x value
+		 * @param y The y value
+		 * @param z The z value
+		 * @return The color to show for the cell
+		 */
+		public Color color(int x, int y, int z);
+
+	}
+
+	private World world;
+	private Source source;
+	private int width;
+	private int height;
+
+	/**
+	 * What each cell of the rectangle shows, indexed by <code>y * width + x</code>.
+	 * A null color means the terminal holds something else there, such as a message.
+	 */
+	private char[] glyphs;
+	private Color[] colors;
+	private char[] nextGlyphs;
+	private Color[] nextColors;
+
+	/**
+	 * Rows of the rectangle that were drawn over by someone else, and cells of the world whose looks changed
+	 * for reasons the world does not know about, indexed by <code>y * world.width() + x</code>.
+	 */
+	private BitSet overdrawnRows;
+	private BitSet stale;
+
+	private boolean valid;
+	private int left;
+	private int top;
+	private int z;
+
+	/**
+	 * Class constructor.
+	 * @param world The world to draw
+	 * @param source Decides what each cell looks like
+	 * @param width The width of the rectangle
+	 * @param height The height of the rectangle
+	 */
+	public MapRenderer(World world, Source source, int width, int height){
+		this.world = world;
+		this.source = source;
+		this.width = width;
+		this.height = height;
+		this.glyphs = new char[width * height];
+		this.colors = new Color[width * height];
+		this.nextGlyphs = new char[width * height];
+		this.nextColors = new Color[width * height];
+		this.overdrawnRows = new BitSet(height);
+		this.stale = new BitSet(world.width() * world.height());
+	}
+
+	/**
+	 * Forgets what the terminal shows, so that the next frame is drawn in full.
+	 */
+	public void invalidate(){
+		valid = false;
+	}
+
+	/**
+	 * Notes that rows of the rectangle were drawn over, so that they are drawn again in the next frame.
+	 * @param from The first row
+	 * @param to One past the last row
+	 */
+	public void invalidateRows(int from, int to){
+		from = Math.max(from, 0);
+		to = Math.min(to, height);
+		for (int y = from; y < to; y++){
+			overdrawnRows.set(y);
+			for (int x = 0; x < width; x++){
+				colors[y * width + x] = null;
+			}
+		}
+	}
+
+	/**
+	 * Notes that an area of the world looks different, so that it is looked up again in the next frame.
+	 * @param x0 The leftmost x value
+	 * @param y0 The topmost y value
+	 * @param x1 The rightmost x value
+	 * @param y1 The bottommost y value
+	 */
+	public void invalidateArea(int x0, int y0, int x1, int y1){
+		x0 = Math.max(x0, 0);
+		y0 = Math.max(y0, 0);
+		x1 = Math.min(x1, world.width() - 1);
+		y1 = Math.min(y1, world.height() - 1);
+		for (int y = y0; y <= y1; y++){
+			if (x0 <= x1){
+				stale.set(y * world.width() + x0, y * world.width() + x1 + 1);
+			}
+		}
+	}
+
+	/**
+	 * Brings the terminal up to date with the world.
+	 * Clears the changed cells of the level, as they have been drawn.
+	 * @param terminal The terminal to draw in
+	 * @param left The leftmost coordinate of the world to display
+	 * @param top The topmost coordinate of the world to display
+	 * @param z The level to display
+	 */
+	public void render(Terminal terminal, int left, int top, int z){
+		BitSet changed = world.changedCells(z);
+		int dx = left - this.left;
+		int dy = top - this.top;
+
+		if (!valid || z != this.z || Math.abs(dx) >= width || Math.abs(dy) >= height){
+			redraw(terminal, left, top, z);
+		} else if (dx != 0 || dy != 0){
+			scroll(terminal, changed, left, top, z, dx, dy);
+		} else {
+			for (int y = 0; y < height; y++){
+				if (overdrawnRows.get(y)){
+					for (int x = 0; x < width; x++){
+						look(glyphs, colors, terminal, x, y, left, top, z);
+					}
+				}
+			}
+			refresh(glyphs, colors, terminal, changed, left, top, z);
+			refresh(glyphs, colors, terminal, stale, left, top, z);
+		}
+
+		changed.clear();
+		stale.clear();
+		overdrawnRows.clear();
+		this.valid = true;
+		this.left = left;
+		this.top = top;
+		this.z = z;
+	}
+
+	/**
+	 * Looks up and writes every cell.
+	 */
+	private void redraw(Terminal terminal, int left, int top, int z){
+		for (int i = 0; i < colors.length; i++){
+			colors[i] = null;
+		}
+		for (int y = 0; y < height; y++){
+			for (int x = 0; x < width; x++){
+				look(glyphs, colors, terminal, x, y, left, top, z);
+			}
+		}
+	}
+
+	/**
+	 * Shifts the last frame by the scrolled distance, looks up the cells that came into view or changed,
+	 * and writes the cells whose looks differ from what the terminal shows.
+	 */
+	private void scroll(Terminal terminal, BitSet changed, int left, int top, int z, int dx, int dy){
+		int from = Math.max(dx, 0);
+		int to = Math.max(-dx, 0);
+		int length = width - Math.abs(dx);
+
+		for (int y = 0; y < height; y++){
+			int oldY = y + dy;
+			if (oldY < 0 || oldY >= height || overdrawnRows.get(oldY)){
+				for (int x = 0; x < width; x++){
+					look(nextGlyphs, nextColors, null, x, y, left, top, z);
+				}
+				continue;
+			}
+
+			System.arraycopy(glyphs, oldY * width + from, nextGlyphs, y * width + to, length);
+			System.arraycopy(colors, oldY * width + from, nextColors, y * width + to, length);
+			for (int x = 0; x < to; x++){
+				look(nextGlyphs, nextColors, null, x, y, left, top, z);
+			}
+			for (int x = to + length; x < width; x++){
+				look(nextGlyphs, nextColors, null, x, y, left, top, z);
+			}
+		}
+		refresh(nextGlyphs, nextColors, null, changed, left, top, z);
+		refresh(nextGlyphs, nextColors, null, stale, left, top, z);
+
+		for (int i = 0; i < glyphs.length; i++){
+			if (nextGlyphs[i] != glyphs[i] || !nextColors[i].equals(colors[i])){
+				terminal.write(nextGlyphs[i], i % width, i / width, nextColors[i]);
+			}
+		}
+
+		char[] swapGlyphs = glyphs;
+		glyphs = nextGlyphs;
+		nextGlyphs = swapGlyphs;
+		Color[] swapColors = colors;
+		colors = nextColors;
+		nextColors = swapColors;
+	}
+
+	/**
+	 * Looks up the cells of the world that are set in the given bits and lie in view.
+	 * Only the rows in view are visited, so the cost grows with the number of changed cells.
+	 */
+	private void refresh(char[] glyphs, Color[] colors, Terminal terminal, BitSet bits, int left, int top, int z){
+		if (bits.isEmpty()){
+			return;
+		}
+		int worldWidth = world.width();
+		int firstX = Math.max(left, 0);
+		int lastX = Math.min(left + width, worldWidth);
+
+		for (int y = 0; y < height; y++){
+			int wy = y + top;
+			if (wy < 0 || wy >= world.height()){
+				continue;
+			}
+			int end = wy * worldWidth + lastX;
+			for (int i = bits.nextSetBit(wy * worldWidth + firstX); i >= 0 && i < end; i = bits.nextSetBit(i + 1)){
+				look(glyphs, colors, terminal, i % worldWidth - left, y, left, top, z);
+			}
+		}
+	}
+
+	/**
+	 * Looks up one cell into the given frame, writing it to the terminal if a terminal is given and the cell differs.
+	 */
+	private void look(char[] glyphs, Color[] colors, Terminal terminal, int x, int y, int left, int top, int z){
+		int wx = x + left;
+		int wy = y + top;
+		int index = y * width + x;
+		char glyph = source.glyph(wx, wy, z);
+		Color color = source.color(wx, wy, z);
+
+		if (terminal != null && (glyph != glyphs[index] || !color.equals(colors[index]))){
+			terminal.write(glyph, x, y, color);
+		}
+		glyphs[index] = glyph;
+		colors[index] = color;
+	}
+
+}
@@ -11,7 +11,7 @@ import banditlike.FieldOfView;
 import banditlike.Tile;
 import banditlike.World;
 import banditlike.WorldBuilder;
-import asciiPanel.AsciiPanel;
+import banditlike.Terminal;
 
 /**
  * The screen of the main game. 
@@ -37,67 +37,129 @@ public class PlayScreen implements Screen {
 	private List<String> messages;
 	private FieldOfView fov;
 	
+	/**
+	 * Draws the map, writing only the cells that changed since the last frame.
+	 * The rest of the screen is the PlayScreen's to clear: the rows of the messages that were drawn over the map
+	 * in the last frame, and whether a subscreen was shown over it, are remembered so the map can be drawn again there.
+	 */
+	private MapRenderer renderer;
+	private int messageTop;
+	private boolean subscreenShown;
+	private long fovVersion;
+	private int fovX;
+	private int fovY;
+	private int fovRadius;
+	
+	/**
+	 * Whether the creatures plan their actions in parallel; see World.setParallel.
+	 */
+	private boolean parallel;
+	
 	/**
 	 * Class constructor.
 	 * Screen width and height is set smaller than the actual terminal to leave blank space for messages and stats.
 	 * Initializes the world, messages, field of view, creatures, and items in the world.
 	 */
 	public PlayScreen(){
+		this(false);
+	}
+	
+	/**
+	 * Class constructor.
+	 * Screen width and height is set smaller than the actual terminal to leave blank space for messages and stats.
+	 * Initializes the world, messages, field of view, creatures, and items in the world.
+	 * @param parallel Whether the creatures plan their actions in parallel
+	 */
+	public PlayScreen(boolean parallel){
+		this.parallel = parallel;
 		screenWidth = 100;
 		screenHeight = 40;
 		messages = new ArrayList<String>();
 		createWorld();
-		fov = new FieldOfView(world);
+		fov = new FieldOfView(world, FieldOfView.Algorithm.SHADOWCAST);
+		renderer = new MapRenderer(world, new MapRenderer.Source(){
+			@Override
+			public char glyph(int wx, int wy, int wz){
+//				if (player.canSee(wx, wy, wz)) {
+//					return world.glyph(wx, wy, wz);
+//				}
+//				return fov.tile(wx, wy, wz).glyph();
+				
+				//If you do not want FOV (for debug purposes), uncomment below and comment out the top.
+				return world.glyph(wx, wy, wz);
+			}
+			
+			@Override
+			public Color color(int wx, int wy, int wz){
+//				if (player.canSee(wx, wy, wz)) {
+//					return world.color(wx, wy, wz);
+//				}
+//				return Color.darkGray;
+				
+				//If you do not want FOV (for debug purposes), uncomment below and comment out the top.
+				return world.color(wx, wy, wz);
+			}
+		}, screenWidth, screenHeight);
+		messageTop = screenHeight;
 		
 		StuffFactory stuffFactory = new StuffFactory(world);
 		createCreatures(stuffFactory);
 		createItems(stuffFactory);
+		world.setActiveZone(player, screenWidth / 2);
 	}
 	
 	/**
-	 * Creates creatures in the world.
+	 * Creates creatures in the world. A level that runs out of empty ground gets fewer monsters.
 	 * @param creatureFactory The factory used to create creatures.
 	 */
 	private void createCreatures(StuffFactory creatureFactory){
 		player = creatureFactory.newPlayer(messages, fov);
+		if (player == null) {
+			throw new IllegalStateException("The first level has no room for the player.");
+		}
 		
 		for(int z = 0; z < world.depth(); z++){
 			for(int i = 0; i < 8; i++){
-				creatureFactory.newFungus(z);
+				if (creatureFactory.newFungus(z) == null)
+					break;
 			}
 			for(int i = 0; i < 20; i++){
-				creatureFactory.newBat(z);
+				if (creatureFactory.newBat(z) == null)
+					break;
 			}
 		}
 	}
 	
 	/**
-	 * Creates items in the world.
+	 * Creates items in the world. A level that runs out of empty ground gets fewer rocks.
 	 * @param factory The factory used to create items.
 	 */
 	private void createItems(StuffFactory factory){
 		for (int z = 0; z < world.depth(); z++) {
 			for (int i = 0; i < world.width() * world.height() / 20; i++) {
-				factory.newRock(z);
+				if (factory.newRock(z) == null)
+					break;
 			}
 		}
-		factory.newVictoryItem(world.depth() - 1);
+		if (factory.newVictoryItem(world.depth() - 1) == null) {
+			throw new IllegalStateException("The last level has no room for the victory item.");
+		}
 	}
 
 	/**
 	 * Displays the output (world, creatures, items, stats, messages).
 	 * The world view is automatically scrolled based on the player location.
+	 * The terminal is not cleared between frames, so the areas for messages and stats are cleared here.
 	 */
 	@Override
-	public void displayOutput(AsciiPanel terminal) {
+	public void displayOutput(Terminal terminal) {
 		int left = getScrollX();
 		int top = getScrollY();
 		
 		displayTiles(terminal, left, top);
 		displayMessages(terminal, messages);
 		
-		terminal.write(player.glyph(), player.x - left, player.y - top, player.color());
-		
+		terminal.clear(' ', screenWidth, 0, terminal.getWidthInCharacters() - screenWidth, screenHeight);
 		String stats = String.format(" %3d/%3d hp", player.hp(), player.maxHp());
 		terminal.write(" Stats", screenWidth, 1);
 		terminal.write(stats, screenWidth, 3);
@@ -121,9 +183,9 @@ public class PlayScreen implements Screen {
 	     } else {
 	         switch (key.getKeyCode()){
 	         case KeyEvent.VK_ESCAPE: 
-	        	 return new LoseScreen();
+	        	 return new LoseScreen(parallel);
 	         case KeyEvent.VK_ENTER: 
-	        	 return new WinScreen();
+	        	 return new WinScreen(parallel);
 	         case KeyEvent.VK_LEFT:
 	        	 player.moveBy(-1, 0, 0); 
 	        	 break;
@@ -163,7 +225,7 @@ public class PlayScreen implements Screen {
 	         world.update();
 	    
 	     if (player.hp() < 1)
-	         return new LoseScreen();
+	         return new LoseScreen(parallel);
 	    
 	     return this;
 	}
@@ -174,17 +236,21 @@ public class PlayScreen implements Screen {
 	 * The method for creating a world.
 	 */
 	private void createWorld(){
-		world = new WorldBuilder(200,50,2).makeCaves().build();
+		world = new WorldBuilder(200,50,2).inParallel().makeCaves().build();
+		world.setParallel(parallel);
 	}
 	
 	/**
 	 * Displays messages to the players or other creatures.
 	 * The messages are written on the bottom center of the screen
-	 * @param terminal The AsciiPanel terminal to write the messages in.
+	 * @param terminal The terminal to write the messages in.
 	 * @param messages The messages to display
 	 */
-	private void displayMessages(AsciiPanel terminal, List<String> messages) {
+	private void displayMessages(Terminal terminal, List<String> messages) {
+	    terminal.clear(' ', 0, screenHeight, terminal.getWidthInCharacters(), terminal.getHeightInCharacters() - screenHeight);
+	    
 	    int top = screenHeight + 3 - messages.size();
+	    messageTop = top;
 	    for (int i = 0; i < messages.size(); i++){
 	        terminal.writeCenter(messages.get(i), top + i);
 	    }
@@ -196,7 +262,7 @@ public class PlayScreen implements Screen {
 	 * @return The leftmost coordinate to display in the terminal.
 	 */
 	public int getScrollX(){
-		return Math.max(0, Math.min(player.x - screenWidth / 2, world.width() - screenWidth));
+		return Math.max(0, Math.min(player.x() - screenWidth / 2, world.width() - screenWidth));
 	}
 	
 	/**
@@ -204,36 +270,38 @@ public class PlayScreen implements Screen {
 	 * @return The topmost coordinate to display in the terminal.
 	 */
 	public int getScrollY(){
-		return Math.max(0, Math.min(player.y - screenHeight / 2, world.height() - screenHeight));
+		return Math.max(0, Math.min(player.y() - screenHeight / 2, world.height() - screenHeight));
 	}
 	
 	/**
 	 * Display the world tiles in the terminal.
 	 * The world tiles to display should be adjusted respective to player location.
 	 * If a tile is beyond the field of view, the tile is darkened.
-	 * @param terminal The AsciiPanel terminal to write the world tiles in.
+	 * Only the cells that changed are written: the renderer is told about the map rows messages were written over,
+	 * a subscreen that was closed, and the tiles whose visibility may have changed with the field of view.
+	 * @param terminal The terminal to write the world tiles in.
 	 * @param left The leftmost coordinate of the world to display in the terminal.
 	 * @param top The topmost coordinate of the world to display in the terminal.
 	 */
-	private void displayTiles(AsciiPanel terminal, int left, int top){
-		fov.update(player.x, player.y, player.z, player.visionRadius());
+	private void displayTiles(Terminal terminal, int left, int top){
+		fov.update(player.x(), player.y(), player.z(), player.visionRadius());
 		
-		for(int x = 0; x < screenWidth; x++){
-			for(int y = 0; y < screenHeight; y++){
-				int wx = x + left;
-				int wy = y + top;
-				
-//				if (player.canSee(wx,wy,player.z)) {
-//					terminal.write(world.glyph(wx,wy,player.z), x, y, world.color(wx, wy, player.z));
-//				} else {
-//					terminal.write(fov.tile(wx, wy, player.z).glyph(), x, y, Color.darkGray);
-//				}
-				
-				//If you do not want FOV (for debug purposes), uncomment below and comment out the top. 
-				terminal.write(world.glyph(wx, wy, player.z), x, y, world.color(wx, wy, player.z));
-			}
+		if (fov.version() != fovVersion) {
+			renderer.invalidateArea(fovX - fovRadius, fovY - fovRadius, fovX + fovRadius, fovY + fovRadius);
+			fovVersion = fov.version();
+			fovX = player.x();
+			fovY = player.y();
+			fovRadius = player.visionRadius();
+			renderer.invalidateArea(fovX - fovRadius, fovY - fovRadius, fovX + fovRadius, fovY + fovRadius);
+		}
+		if (subscreenShown && subscreen == null) {
+			renderer.invalidate();
 		}
+		renderer.invalidateRows(messageTop, screenHeight);
+		
+		renderer.render(terminal, left, top, player.z());
 		
+		subscreenShown = subscreen != null;
 		if (subscreen != null) {
 			subscreen.displayOutput(terminal);
 		}
@@ -246,7 +314,7 @@ public class PlayScreen implements Screen {
 	 * @return If user is trying to go upstairs on topmost floor, or "exiting" the caves
 	 */
 	private boolean userIsTryingToExit() {
-		return player.z == 0 && world.tile(player.x, player.y, player.z) == Tile.STAIRS_UP;
+		return player.z() == 0 && world.tile(player.x(), player.y(), player.z()) == Tile.STAIRS_UP;
 	}
 	
 	/**
@@ -258,9 +326,9 @@ public class PlayScreen implements Screen {
 	private Screen userExits() {
 		for (Item item : player.inventory().getItems()){
 	        if (item != null && item.name().equals("teddy bear"))
-	            return new WinScreen();
+	            return new WinScreen(parallel);
 	    }
-	    return new LoseScreen();
+	    return new LoseScreen(parallel);
 	}
 	
 }
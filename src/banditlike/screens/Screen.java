@@ -1,7 +1,7 @@
 package banditlike.screens;
 
 import java.awt.event.KeyEvent;
-import asciiPanel.AsciiPanel;
+import banditlike.Terminal;
 
 /**
  * The screen interface to be implemented in all screens.
@@ -11,7 +11,7 @@ import asciiPanel.AsciiPanel;
 
 public interface Screen {
 	
-	public void displayOutput(AsciiPanel terminal);
+	public void displayOutput(Terminal terminal);
 	
 	public Screen respondToUserInput(KeyEvent key);
 	
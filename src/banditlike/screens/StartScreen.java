@@ -1,7 +1,7 @@
 package banditlike.screens;
 
 import java.awt.event.KeyEvent;
-import asciiPanel.AsciiPanel;
+import banditlike.Terminal;
 
 /**
  * The starting screen, when the program begins.
@@ -9,15 +9,32 @@ import asciiPanel.AsciiPanel;
  */
 
 public class StartScreen implements Screen {
+	
+	private boolean parallel;
+	
+	/**
+	 * Class constructor.
+	 */
+	public StartScreen(){
+		this(false);
+	}
+	
+	/**
+	 * Class constructor.
+	 * @param parallel Whether the next game's creatures plan their actions in parallel; see World.setParallel
+	 */
+	public StartScreen(boolean parallel){
+		this.parallel = parallel;
+	}
 
 	@Override
-	public void displayOutput(AsciiPanel terminal) {
+	public void displayOutput(Terminal terminal) {
 		terminal.write("Banditlike", 1, 1);
 		terminal.writeCenter("-- press [enter] to start --", 22);
 	}
 
 	@Override
 	public Screen respondToUserInput(KeyEvent key) {
-		return key.getKeyCode() == KeyEvent.VK_ENTER ? new PlayScreen() : this;
+		return key.getKeyCode() == KeyEvent.VK_ENTER ? new PlayScreen(parallel) : this;
 	}
 }
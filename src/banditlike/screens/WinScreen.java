@@ -1,7 +1,7 @@
 package banditlike.screens;
 
 import java.awt.event.KeyEvent;
-import asciiPanel.AsciiPanel;
+import banditlike.Terminal;
 
 /**
  * The winning screen.
@@ -9,15 +9,32 @@ import asciiPanel.AsciiPanel;
  */
 
 public class WinScreen implements Screen {
+	
+	private boolean parallel;
+	
+	/**
+	 * Class constructor.
+	 */
+	public WinScreen(){
+		this(false);
+	}
+	
+	/**
+	 * Class constructor.
+	 * @param parallel Whether the next game's creatures plan their actions in parallel; see World.setParallel
+	 */
+	public WinScreen(boolean parallel){
+		this.parallel = parallel;
+	}
 
 	@Override
-	public void displayOutput(AsciiPanel terminal) {
+	public void displayOutput(Terminal terminal) {
 		terminal.write("You won.", 1, 1);
 		terminal.writeCenter("-- press [enter] to restart --", 22);
 	}
 
 	@Override
 	public Screen respondToUserInput(KeyEvent key) {
-		return key.getKeyCode() == KeyEvent.VK_ENTER ? new PlayScreen() : this;
+		return key.getKeyCode() == KeyEvent.VK_ENTER ? new PlayScreen(parallel) : this;
 	}
 }